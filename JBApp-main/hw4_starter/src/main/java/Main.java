@@ -1,55 +1,329 @@
 import com.google.gson.Gson;
-import com.j256.ormlite.dao.Dao;
-import com.j256.ormlite.dao.DaoManager;
-import com.j256.ormlite.jdbc.JdbcConnectionSource;
-import com.j256.ormlite.support.ConnectionSource;
-import com.j256.ormlite.table.TableUtils;
-import model.Employer;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonSyntaxException;
+import config.AppConfig;
+import db.BatchLoader;
+import db.Database;
+import db.MemorySnapshots;
+import db.SlowQueryLog;
 import model.Job;
+import model.JobRow;
+import model.SavedSearch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import search.AlertWorker;
+import search.JobFacetIndex;
+import search.JobFilter;
+import server.ConfiguredJettyServer;
+import server.JobRowAdapter;
+import server.OffHeapResponseCache;
+import server.StartupMetrics;
+import server.Warmup;
+import shard.ShardedDatabase;
+import spark.Request;
 import spark.Spark;
+import spark.embeddedserver.EmbeddedServers;
+import spark.embeddedserver.jetty.EmbeddedJettyFactory;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 public class Main {
 
-    private static Dao getEmployerORMLiteDao() throws SQLException {
-        final String URI = "jdbc:sqlite:./JBApp.db";
-        ConnectionSource connectionSource = new JdbcConnectionSource(URI);
-        TableUtils.createTableIfNotExists(connectionSource, Employer.class);
-        return DaoManager.createDao(connectionSource, Employer.class);
-    }
+    private static final Logger LOG = LoggerFactory.getLogger(Main.class);
 
-    private static Dao getJobORMLiteDao() throws SQLException {
-        final String URI = "jdbc:sqlite:./JBApp.db";
-        ConnectionSource connectionSource = new JdbcConnectionSource(URI);
-        TableUtils.createTableIfNotExists(connectionSource, Job.class);
-        return DaoManager.createDao(connectionSource, Job.class);
-    }
+    // Gson caches its type adapters per instance, so share one instead of creating one per request
+    private static final Gson GSON = new GsonBuilder().registerTypeAdapterFactory(new JobRowAdapter()).create();
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException, SQLException {
 
-        final int PORT_NUM = 7000;
+        AppConfig config = AppConfig.load();
+        final int PORT_NUM = config.getInt("server.port", 7000);
+        final String MODE = config.getString("db.mode", "file");
         Spark.port(PORT_NUM);
+        EmbeddedServers.add(EmbeddedServers.Identifiers.JETTY, new EmbeddedJettyFactory(new ConfiguredJettyServer(config)));
 
+        SlowQueryLog slowQueryLog = config.getBoolean("db.slowQuery.enabled", true)
+                ? new SlowQueryLog(config.getLong("db.slowQuery.thresholdMs", 50),
+                        Double.parseDouble(config.getString("db.slowQuery.sampleRate", "1.0")),
+                        config.getInt("db.slowQuery.capacity", 100))
+                : null;
+        // db.shards > 1 splits employers and their jobs over that many files, see shard.ShardedDatabase
+        int shardCount = config.getInt("db.shards", 1);
+        // db.mode=memory serves from memory and saves snapshots to db.memory.snapshotFile, see db.MemorySnapshots
+        if (!"file".equals(MODE) && !"memory".equals(MODE)) {
+            throw new IllegalArgumentException("Unknown db.mode: " + MODE);
+        }
+        if ("memory".equals(MODE) && shardCount > 1) {
+            throw new IllegalArgumentException("db.mode=memory needs db.shards=1");
+        }
+        MemorySnapshots snapshots = "memory".equals(MODE)
+                ? new MemorySnapshots("jbapp", Paths.get(config.getString("db.memory.snapshotFile", "./JBApp.db")))
+                : null;
+        String uri = snapshots == null ? config.getString("db.uri", "jdbc:sqlite:./JBApp.db") : snapshots.getUri();
+        ShardedDatabase shards;
+        if (shardCount <= 1) {
+            shards = ShardedDatabase.single(slowQueryLog == null ? Database.open(uri) : Database.open(uri, slowQueryLog));
+        } else {
+            List<String> shardUris = new ArrayList<>();
+            for (int i = 0; i < shardCount; i++) {
+                shardUris.add(String.format(config.getString("db.shardUri", "jdbc:sqlite:./JBApp-shard%d.db"), i));
+            }
+            shards = ShardedDatabase.open(shardUris,
+                    config.getString("db.catalogUri", "jdbc:sqlite:./JBApp-catalog.db"), slowQueryLog,
+                    config.getBoolean("db.shards.rebalance", false));
+        }
+        // saved searches and the alert outbox are not sharded
+        Database database = shards.shard(0);
+        if (snapshots != null) {
+            snapshots.start(config.getLong("db.memory.snapshotIntervalMs", 10000),
+                    config.getLong("db.memory.snapshotWrites", 1000));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    snapshots.close();
+                } catch (Exception e) {
+                    LOG.error("Writing the last snapshot failed", e);
+                }
+            }));
+        }
+        StartupMetrics startupMetrics = new StartupMetrics();
+        OffHeapResponseCache responseCache = config.getBoolean("cache.jobs.enabled", true)
+                ? new OffHeapResponseCache(config.getLong("cache.jobs.maxBytes", 64L * 1024 * 1024))
+                : null;
+
+        // report ready (200) only once warm-up below has finished; load balancers and deploy
+        // scripts should poll this instead of /jobs
+        Spark.get("/ready", (req, res) -> {
+            res.type("application/json");
+            res.status(startupMetrics.isReady() ? 200 : 503);
+            return GSON.toJson(startupMetrics.snapshot());
+        });
+
+        Spark.before((req, res) -> req.attribute("startNanos", System.nanoTime()));
+        Spark.afterAfter((req, res) -> {
+            Long startNanos = req.attribute("startNanos");
+            if (startNanos != null && !"/ready".equals(req.pathInfo())) {
+                startupMetrics.recordRequest(System.nanoTime() - startNanos);
+            }
+        });
+
+        // /employers?ids=3,1,2 returns just those employers, in that order
+        // /employers?afterId=..&limit=.. returns the next page in id order
         Spark.get("/employers", (req, res) -> {
-            String results = new Gson().toJson(getEmployerORMLiteDao().queryForAll());
+            String ids = req.queryParams("ids");
+            String results = GSON.toJson(ids == null
+                    ? shards.listEmployers(pageParam(req, "afterId"), pageParam(req, "limit"))
+                    : shards.employersByIds(BatchLoader.parseIds(ids)));
+            res.type("application/json");
+            res.status(200);
+            return results;
+        });
+
+        // same as /employers?ids=.. for id lists too long for a URL; the body is a JSON array of ids
+        Spark.post("/employers/batch", (req, res) -> {
+            String results = GSON.toJson(shards.employersByIds(idsFromBody(req.body())));
             res.type("application/json");
             res.status(200);
             return results;
         });
 
+        // /jobs?domain=..&location=..&fullTime=..&salaryBased=.. filters the listing;
+        // /jobs?facets=domain,pay also returns per-value counts for that filter:
+        // {"jobs": [...], "facets": {"domain": {"tech": 3}, "pay": {"100000-149999": 2}}}
+        // /jobs?afterId=..&limit=.. pages through the (filtered) listing in id order
+        // /jobs?ids=.. returns just those jobs, in that order, and ignores the filters below
         Spark.get("/jobs", (req, res) -> {
-            String results = new Gson().toJson(getJobORMLiteDao().queryForAll());
+            String ids = req.queryParams("ids");
+            if (ids != null) {
+                res.type("application/json");
+                res.status(200);
+                return GSON.toJson(shards.jobsByIds(BatchLoader.parseIds(ids)));
+            }
+            JobFilter filter = JobFilter.fromParams(req::queryParams);
+            long afterId = pageParam(req, "afterId");
+            long limit = pageParam(req, "limit");
+            String facets = req.queryParams("facets");
+            res.type("application/json");
+            res.status(200);
+            if (responseCache == null) {
+                return jobsJson(shards, filter, afterId, limit, facets);
+            }
+            List<Object> key = OffHeapResponseCache.jobsKey(filter, afterId, limit, facets);
+            long version = shards.jobsVersion();
+            ByteBuffer body = responseCache.get(key, version);
+            if (body == null) {
+                String results = jobsJson(shards, filter, afterId, limit, facets);
+                body = responseCache.put(key, version, results.getBytes(StandardCharsets.UTF_8));
+                if (body == null) {
+                    return results;
+                }
+            }
+            // written from off-heap memory by Jetty; Spark adds nothing to a committed response
+            OffHeapResponseCache.write(res.raw(), body);
+            return "";
+        });
+
+        Spark.post("/jobs/batch", (req, res) -> {
+            String results = GSON.toJson(shards.jobsByIds(idsFromBody(req.body())));
+            res.type("application/json");
+            res.status(200);
+            return results;
+        });
+
+        // the alert worker only runs on a single file (see below), so with db.shards > 1 a saved
+        // search would never fire; both alert endpoints answer 501 instead
+        String alertsUnsupported = shards.size() > 1 ? GSON.toJson(Collections.singletonMap("error",
+                "Job alerts need a single shard (db.shards=1)")) : null;
+
+        // save a search; new jobs matching it are written to the alert outbox
+        Spark.post("/searches", (req, res) -> {
+            if (alertsUnsupported != null) {
+                res.type("application/json");
+                res.status(501);
+                return alertsUnsupported;
+            }
+            SavedSearch search = GSON.fromJson(req.body(), SavedSearch.class);
+            if (search == null || search.getSubscriber() == null) {
+                throw new IllegalArgumentException("A saved search needs a subscriber");
+            }
+            search.setId(0);
+            database.getSavedSearchDao().create(search);
+            res.type("application/json");
+            res.status(201);
+            return GSON.toJson(search);
+        });
+
+        // alert outbox, oldest first: /alerts?after=<last alert id seen>&limit=100
+        Spark.get("/alerts", (req, res) -> {
+            if (alertsUnsupported != null) {
+                res.type("application/json");
+                res.status(501);
+                return alertsUnsupported;
+            }
+            long after = pageParam(req, "after");
+            long limit = req.queryParams("limit") == null ? 100 : pageParam(req, "limit");
+            // SQLite reads a negative LIMIT as no limit at all
+            if (limit < 1 || limit > 1000) {
+                throw new IllegalArgumentException("limit must be between 1 and 1000");
+            }
+            String results = GSON.toJson(database.getJobAlertDao().queryBuilder()
+                    .orderBy("id", true)
+                    .limit(limit)
+                    .where().gt("id", after)
+                    .query());
             res.type("application/json");
             res.status(200);
             return results;
         });
 
-        // TODO 4: Similar to employers endpoint above, write a "jobs" (http get) endpoint
-        //  to return all rows in the "jobs" table a JSON!
-        //  Note: For this endpoint to work properly, similar to getEmployerORMLiteDao you
-        //  would need to write a new method to create "jobs" table, create a Job Dao and
-        //  return it from the method!
+        // recent statements slower than db.slowQuery.thresholdMs, with their EXPLAIN QUERY PLAN
+        Spark.get("/admin/slow-queries", (req, res) -> {
+            res.type("application/json");
+            if (slowQueryLog == null) {
+                res.status(404);
+                return GSON.toJson(Collections.singletonMap("error", "Slow-query log is disabled (db.slowQuery.enabled)"));
+            }
+            res.status(200);
+            return GSON.toJson(slowQueryLog.snapshot());
+        });
+
+        // size and hit rate of the off-heap /jobs response cache
+        Spark.get("/admin/response-cache", (req, res) -> {
+            res.type("application/json");
+            if (responseCache == null) {
+                res.status(404);
+                return GSON.toJson(Collections.singletonMap("error", "Response cache is disabled (cache.jobs.enabled)"));
+            }
+            res.status(200);
+            return GSON.toJson(responseCache.snapshot());
+        });
+
+        // state of the snapshots written in db.mode=memory
+        Spark.get("/admin/snapshots", (req, res) -> {
+            res.type("application/json");
+            if (snapshots == null) {
+                res.status(404);
+                return GSON.toJson(Collections.singletonMap("error", "Not running in memory (db.mode)"));
+            }
+            res.status(200);
+            return GSON.toJson(snapshots.stats());
+        });
+
+        Spark.exception(JsonSyntaxException.class, (e, req, res) -> {
+            res.type("application/json");
+            res.status(400);
+            res.body(GSON.toJson(Collections.singletonMap("error", "Malformed JSON: " + e.getMessage())));
+        });
+
+        Spark.exception(IllegalArgumentException.class, (e, req, res) -> {
+            res.type("application/json");
+            res.status(400);
+            res.body(GSON.toJson(Collections.singletonMap("error", e.getMessage())));
+        });
+
+        // the worker's cursor relies on AUTOINCREMENT job ids in a single file
+        if (config.getBoolean("alerts.enabled", true) && shards.size() > 1) {
+            LOG.warn("Job alerts are not supported with db.shards > 1; the alert worker is not started");
+        } else if (config.getBoolean("alerts.enabled", true)) {
+            AlertWorker alertWorker = new AlertWorker(database, config.getInt("alerts.batchSize", 1000));
+            alertWorker.start(config.getLong("alerts.pollMs", 1000));
+        }
+
+        Spark.awaitInitialization();
+        if (config.getBoolean("startup.warmup", true)) {
+            Warmup.run(shards, GSON, config.getInt("startup.warmup.iterations", 3));
+        }
+        startupMetrics.markReady();
+        LOG.info("JBApp ready on port {}: {}", PORT_NUM, startupMetrics.snapshot());
+
+    }
+
+    // the /jobs listing body: the jobs, or {"jobs": [...], "facets": {...}} when facets are asked for
+    private static String jobsJson(ShardedDatabase shards, JobFilter filter, long afterId, long limit, String facets)
+            throws SQLException {
+        List<JobRow> jobs = shards.listJobs(filter, afterId, limit);
+        if (facets == null) {
+            return GSON.toJson(jobs);
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("jobs", jobs);
+        body.put("facets", shards.facetCounts(filter, facets.isEmpty()
+                ? JobFacetIndex.FACETS
+                : Arrays.asList(facets.split(","))));
+        return GSON.toJson(body);
+    }
+
+    // afterId / limit of a paged listing; 0 (from the start / no limit) when absent
+    private static long pageParam(Request req, String name) {
+        String value = req.queryParams(name);
+        if (value == null) {
+            return 0;
+        }
+        try {
+            long number = Long.parseLong(value);
+            if (number < 0) {
+                throw new IllegalArgumentException(name + " must not be negative");
+            }
+            return number;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + value);
+        }
+    }
 
+    private static List<Integer> idsFromBody(String body) {
+        Integer[] ids = GSON.fromJson(body, Integer[].class);
+        if (ids == null) {
+            throw new IllegalArgumentException("Expected a JSON array of ids");
+        }
+        return BatchLoader.checkIds(Arrays.asList(ids));
     }
 }
@@ -0,0 +1,55 @@
+package config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+// Server settings. Values are read from jbapp.properties in the working directory (if present)
+// and can be overridden on the command line with -D<key>=<value>, e.g. -Dserver.port=8080.
+public class AppConfig {
+
+    public static final String FILE_NAME = "jbapp.properties";
+
+    private final Properties props;
+
+    public AppConfig(Properties props) {
+        this.props = props;
+    }
+
+    public static AppConfig load() throws IOException {
+        return load(Paths.get(FILE_NAME));
+    }
+
+    public static AppConfig load(Path file) throws IOException {
+        Properties props = new Properties();
+        if (Files.exists(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                props.load(in);
+            }
+        }
+        return new AppConfig(props);
+    }
+
+    public String getString(String key, String defaultValue) {
+        String value = System.getProperty(key, props.getProperty(key));
+        return value == null || value.trim().isEmpty() ? defaultValue : value.trim();
+    }
+
+    public int getInt(String key, int defaultValue) {
+        String value = getString(key, null);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    public long getLong(String key, long defaultValue) {
+        String value = getString(key, null);
+        return value == null ? defaultValue : Long.parseLong(value);
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String value = getString(key, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+}
@@ -0,0 +1,84 @@
+package db;
+
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.stmt.SelectArg;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+// Loads many rows by id with "WHERE id IN (?, ?, ...)" queries instead of one query per id. The
+// ids are bound as parameters and split into chunks of at most CHUNK_SIZE, which stays under
+// SQLite's default SQLITE_MAX_VARIABLE_NUMBER (999 before SQLite 3.32). Rows come back in the
+// order the ids were requested; ids that do not exist are skipped.
+public final class BatchLoader {
+
+    public static final int CHUNK_SIZE = 999;
+    public static final int MAX_IDS = 10000;
+
+    private BatchLoader() {
+    }
+
+    public static <T> List<T> loadByIds(Dao<T, Integer> dao, List<Integer> ids, Function<T, Integer> idOf)
+            throws SQLException {
+        return loadByIds(dao, ids, idOf, CHUNK_SIZE);
+    }
+
+    public static <T> List<T> loadByIds(Dao<T, Integer> dao, List<Integer> ids, Function<T, Integer> idOf,
+                                        int chunkSize) throws SQLException {
+        List<Integer> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        Map<Integer, T> byId = new HashMap<>();
+        for (int from = 0; from < distinct.size(); from += chunkSize) {
+            List<Integer> chunk = distinct.subList(from, Math.min(from + chunkSize, distinct.size()));
+            List<SelectArg> args = new ArrayList<>(chunk.size());
+            for (Integer id : chunk) {
+                args.add(new SelectArg(id));
+            }
+            for (T row : dao.queryBuilder().where().in("id", args).query()) {
+                byId.put(idOf.apply(row), row);
+            }
+        }
+        List<T> result = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            T row = byId.get(id);
+            if (row != null) {
+                result.add(row);
+            }
+        }
+        return result;
+    }
+
+    // parses "1,2,3" into ids
+    public static List<Integer> parseIds(String csv) {
+        List<Integer> ids = new ArrayList<>();
+        for (String part : csv.split(",")) {
+            if (!part.trim().isEmpty()) {
+                ids.add(parseId(part.trim()));
+            }
+        }
+        return checkIds(ids);
+    }
+
+    // ids from a request: at most MAX_IDS of them, and none null (a JSON body like [1, null])
+    public static List<Integer> checkIds(List<Integer> ids) {
+        if (ids.size() > MAX_IDS) {
+            throw new IllegalArgumentException("At most " + MAX_IDS + " ids can be requested at once");
+        }
+        if (ids.contains(null)) {
+            throw new IllegalArgumentException("Ids cannot be null");
+        }
+        return ids;
+    }
+
+    private static Integer parseId(String value) {
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid id: " + value);
+        }
+    }
+}
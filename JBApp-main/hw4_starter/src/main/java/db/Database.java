@@ -0,0 +1,106 @@
+package db;
+
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.dao.DaoManager;
+import com.j256.ormlite.jdbc.JdbcPooledConnectionSource;
+import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.table.DatabaseTableConfig;
+import com.j256.ormlite.table.TableUtils;
+import model.Employer;
+import model.Job;
+import model.JobAlert;
+import model.SavedSearch;
+import model.TableConfigs;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+// Owns the connection source and the model DAOs for the lifetime of the server. The DAOs
+// are created once, from the pre-built TableConfigs, instead of once per request.
+public class Database implements AutoCloseable {
+
+    private final ConnectionSource connectionSource;
+    private final Dao<Employer, Integer> employerDao;
+    private final Dao<Job, Integer> jobDao;
+    private final Dao<SavedSearch, Integer> savedSearchDao;
+    private final Dao<JobAlert, Integer> jobAlertDao;
+
+    private Database(ConnectionSource connectionSource, Dao<Employer, Integer> employerDao, Dao<Job, Integer> jobDao,
+                     Dao<SavedSearch, Integer> savedSearchDao, Dao<JobAlert, Integer> jobAlertDao) {
+        this.connectionSource = connectionSource;
+        this.employerDao = employerDao;
+        this.jobDao = jobDao;
+        this.savedSearchDao = savedSearchDao;
+        this.jobAlertDao = jobAlertDao;
+    }
+
+    public static Database open(String uri) throws SQLException {
+        return open(new JdbcPooledConnectionSource(uri));
+    }
+
+    // same as open(uri), with the statements of every DAO reported to the slow-query log
+    public static Database open(String uri, SlowQueryLog slowQueryLog) throws SQLException {
+        return open(new TimedConnectionSource(uri, slowQueryLog));
+    }
+
+    // one shard of a sharded database: employer and job rows keep the ids set on them before
+    // create(), see shard.ShardedDatabase. slowQueryLog may be null.
+    public static Database openShard(String uri, SlowQueryLog slowQueryLog) throws SQLException {
+        return open(slowQueryLog == null ? new JdbcPooledConnectionSource(uri) : new TimedConnectionSource(uri, slowQueryLog),
+                true);
+    }
+
+    public static Database open(ConnectionSource connectionSource) throws SQLException {
+        return open(connectionSource, false);
+    }
+
+    private static Database open(ConnectionSource connectionSource, boolean assignedIds) throws SQLException {
+        DatabaseTableConfig<Employer> employers = TableConfigs.employers();
+        DatabaseTableConfig<Job> jobs = TableConfigs.jobs();
+        if (assignedIds) {
+            employers = TableConfigs.withAssignedIds(employers);
+            jobs = TableConfigs.withAssignedIds(jobs);
+        }
+        DatabaseTableConfig<SavedSearch> savedSearches = TableConfigs.savedSearches();
+        DatabaseTableConfig<JobAlert> jobAlerts = TableConfigs.jobAlerts();
+        TableUtils.createTableIfNotExists(connectionSource, employers);
+        TableUtils.createTableIfNotExists(connectionSource, jobs);
+        TableUtils.createTableIfNotExists(connectionSource, savedSearches);
+        TableUtils.createTableIfNotExists(connectionSource, jobAlerts);
+        Dao<Employer, Integer> employerDao = DaoManager.createDao(connectionSource, employers);
+        Dao<Job, Integer> jobDao = DaoManager.createDao(connectionSource, jobs);
+        Dao<SavedSearch, Integer> savedSearchDao = DaoManager.createDao(connectionSource, savedSearches);
+        Dao<JobAlert, Integer> jobAlertDao = DaoManager.createDao(connectionSource, jobAlerts);
+        TableVersions.install(employerDao, employers.getTableName());
+        TableVersions.install(jobDao, jobs.getTableName());
+        TableVersions.install(savedSearchDao, savedSearches.getTableName());
+        TableVersions.install(jobAlertDao, jobAlerts.getTableName());
+        return new Database(connectionSource, employerDao, jobDao, savedSearchDao, jobAlertDao);
+    }
+
+    public ConnectionSource getConnectionSource() {
+        return connectionSource;
+    }
+
+    public Dao<Employer, Integer> getEmployerDao() {
+        return employerDao;
+    }
+
+    public Dao<Job, Integer> getJobDao() {
+        return jobDao;
+    }
+
+    public Dao<SavedSearch, Integer> getSavedSearchDao() {
+        return savedSearchDao;
+    }
+
+    public Dao<JobAlert, Integer> getJobAlertDao() {
+        return jobAlertDao;
+    }
+
+    @Override
+    public void close() throws IOException {
+        DaoManager.clearCache();
+        connectionSource.close();
+    }
+}
@@ -0,0 +1,170 @@
+package db;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Serves the database from memory and persists it to a snapshot file in the background. The
+// database lives in SQLite's memdb VFS (jdbc:sqlite:file:/<name>?vfs=memdb), which every
+// connection of the pool opening that uri shares, with the usual locking between them. It is
+// loaded from the snapshot file on startup and copied back with SQLite's online backup API
+// ("backup to" in sqlite-jdbc): once intervalMillis have passed with changes pending, as soon as
+// writesPerSnapshot rows have changed (counted by TableVersions, checked every CHECK_MILLIS), and
+// on close(). The backup goes to a temporary file that is then renamed over the snapshot, so a
+// crash during a backup leaves the previous snapshot intact; changes made after the last
+// snapshot are lost.
+//
+// A memdb database disappears with its last connection, and the pool closes idle ones, so this
+// class keeps a connection of its own open until close(). The backups run on it.
+public class MemorySnapshots implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MemorySnapshots.class);
+    private static final long CHECK_MILLIS = 250;
+
+    private final String uri;
+    private final Path file;
+    private final Connection connection;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "memory-snapshots");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private long savedVersion;
+    private long lastSnapshotNanos = System.nanoTime();
+    private long snapshots;
+    private long lastSnapshotAt;
+    private double lastSnapshotMs;
+    private boolean closed;
+
+    // opens the in-memory database called name and loads the snapshot file into it, if there is one
+    public MemorySnapshots(String name, Path file) throws SQLException {
+        quoted(file); // rejects an unusable path before anything is opened
+        this.uri = "jdbc:sqlite:file:/" + name + "?vfs=memdb";
+        this.file = file;
+        this.connection = DriverManager.getConnection(uri);
+        if (Files.exists(file)) {
+            long start = System.nanoTime();
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("restore from " + quoted(file));
+            }
+            LOG.info("Loaded {} into memory in {} ms", file, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    // the uri to open the database with, e.g. Database.open(snapshots.getUri())
+    public String getUri() {
+        return uri;
+    }
+
+    // starts writing snapshots in the background; call once the tables exist (after Database.open)
+    public synchronized void start(long intervalMillis, long writesPerSnapshot) throws SQLException {
+        savedVersion = version();
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                snapshotIfDue(intervalMillis, writesPerSnapshot);
+            } catch (Exception e) {
+                LOG.error("Writing the snapshot to {} failed", file, e);
+            }
+        }, CHECK_MILLIS, CHECK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    // writes a snapshot if writesPerSnapshot rows have changed since the last one, or any have and
+    // intervalMillis have passed; returns whether it did
+    public synchronized boolean snapshotIfDue(long intervalMillis, long writesPerSnapshot)
+            throws SQLException, IOException {
+        long version = version();
+        long changed = version - savedVersion;
+        if (changed <= 0 || closed) {
+            return false;
+        }
+        if (changed < writesPerSnapshot && System.nanoTime() - lastSnapshotNanos < intervalMillis * 1_000_000L) {
+            return false;
+        }
+        snapshot(version);
+        return true;
+    }
+
+    public synchronized void snapshot() throws SQLException, IOException {
+        snapshot(version());
+    }
+
+    private void snapshot(long version) throws SQLException, IOException {
+        long start = System.nanoTime();
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.deleteIfExists(temporary);
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("backup to " + quoted(temporary));
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        savedVersion = version;
+        lastSnapshotNanos = System.nanoTime();
+        lastSnapshotAt = System.currentTimeMillis();
+        lastSnapshotMs = (lastSnapshotNanos - start) / 1e6;
+        snapshots++;
+    }
+
+    // the path as a quoted argument of sqlite-jdbc's "backup to" / "restore from", which split an
+    // unquoted one at the first space; the quoted form cannot contain a double quote
+    private static String quoted(Path path) {
+        String text = path.toString();
+        if (text.indexOf('"') >= 0) {
+            throw new IllegalArgumentException("A snapshot file path cannot contain '\"': " + text);
+        }
+        return '"' + text + '"';
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("file", file.toString());
+        result.put("snapshots", snapshots);
+        result.put("lastSnapshotAt", lastSnapshotAt);
+        result.put("lastSnapshotMs", lastSnapshotMs);
+        try {
+            result.put("unsavedWrites", closed ? 0 : version() - savedVersion);
+        } catch (SQLException e) {
+            result.put("unsavedWrites", -1);
+        }
+        return result;
+    }
+
+    private long version() throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet results = statement.executeQuery(TableVersions.TOTAL_SQL)) {
+            results.next();
+            return results.getLong(1);
+        }
+    }
+
+    // writes a last snapshot if anything changed and releases the in-memory database
+    @Override
+    public synchronized void close() throws SQLException, IOException {
+        if (closed) {
+            return;
+        }
+        scheduler.shutdownNow();
+        try {
+            long version = version();
+            if (version != savedVersion || !Files.exists(file)) {
+                snapshot(version);
+            }
+        } finally {
+            closed = true;
+            connection.close();
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package db;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Keeps the most recent statements that took at least thresholdMillis, together with their bind
+// parameter types, row count and SQLite's EXPLAIN QUERY PLAN output, in a fixed-size ring buffer.
+// Every statement is timed by TimedConnectionSource; sampleRate only decides which slow entries
+// get a query plan.
+//
+// The plan is not taken on the request's connection or thread: a slow entry is recorded at once
+// with no plan, and a single background thread runs EXPLAIN QUERY PLAN on a connection of its own
+// to the same database and fills it in. Plans are cached by database and SQL for PLAN_TTL_MILLIS,
+// so a statement that is slow over and over is explained about once a minute. At most capacity
+// plans wait to be taken; entries beyond that keep an empty plan.
+public class SlowQueryLog {
+
+    private static final long PLAN_TTL_MILLIS = 60_000;
+    private static final List<String> EXPLAINABLE = Arrays.asList("SELECT", "INSERT", "UPDATE", "DELETE", "WITH",
+            "REPLACE");
+
+    private final long thresholdNanos;
+    private final double sampleRate;
+    private final AtomicReferenceArray<Entry> ring;
+    private final AtomicLong next = new AtomicLong();
+    private final AtomicLong timed = new AtomicLong();
+    private final ThreadPoolExecutor explainer;
+    // plans queued or being taken, guarded by planLock; awaitQueryPlans waits for it to reach 0
+    private final Object planLock = new Object();
+    private int pendingPlans;
+    // (url, sql) -> plan; only touched on the explainer thread
+    private final Map<List<String>, CachedPlan> plans = new HashMap<>();
+    // url -> connection for EXPLAIN; only touched on the explainer thread
+    private final Map<String, Connection> connections = new HashMap<>();
+
+    public SlowQueryLog(long thresholdMillis, double sampleRate, int capacity) {
+        this.thresholdNanos = thresholdMillis * 1_000_000L;
+        this.sampleRate = sampleRate;
+        this.ring = new AtomicReferenceArray<>(capacity);
+        this.explainer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(capacity), r -> {
+            Thread thread = new Thread(r, "slow-query-explain");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // called once a statement has finished; url is the database it ran on, which the background
+    // EXPLAIN QUERY PLAN connects to
+    void finished(String url, String sql, String[] parameterTypes, long rows, long elapsedNanos) {
+        timed.incrementAndGet();
+        if (elapsedNanos < thresholdNanos) {
+            return;
+        }
+        Entry entry = new Entry(System.currentTimeMillis(), sql, Arrays.asList(parameterTypes), rows,
+                elapsedNanos / 1e6);
+        ring.set((int) (next.getAndIncrement() % ring.length()), entry);
+        if (!shouldExplain() || !explainable(sql)) {
+            return;
+        }
+        synchronized (planLock) {
+            pendingPlans++;
+        }
+        try {
+            explainer.execute(() -> {
+                try {
+                    entry.queryPlan = plan(url, sql);
+                } finally {
+                    planDone();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // the queue is full: the entry keeps an empty plan
+            planDone();
+        }
+    }
+
+    // waits until no plans are queued or being taken, i.e. the entries recorded so far have theirs
+    public void awaitQueryPlans() throws InterruptedException {
+        synchronized (planLock) {
+            while (pendingPlans > 0) {
+                planLock.wait();
+            }
+        }
+    }
+
+    // slow statements, most recent first
+    public List<Entry> recent() {
+        long end = next.get();
+        List<Entry> entries = new ArrayList<>();
+        for (long i = end - 1; i >= 0 && i >= end - ring.length(); i--) {
+            Entry entry = ring.get((int) (i % ring.length()));
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("thresholdMs", thresholdNanos / 1_000_000L);
+        result.put("sampleRate", sampleRate);
+        result.put("timedStatements", timed.get());
+        result.put("slowStatements", next.get());
+        result.put("recent", recent());
+        return result;
+    }
+
+    private boolean shouldExplain() {
+        return sampleRate >= 1 || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+
+    // DDL and pragmas have no query plan and are not queued
+    private static boolean explainable(String sql) {
+        String verb = sql.trim().split("\\s+", 2)[0].toUpperCase(Locale.ROOT);
+        return EXPLAINABLE.contains(verb);
+    }
+
+    private void planDone() {
+        synchronized (planLock) {
+            if (--pendingPlans == 0) {
+                planLock.notifyAll();
+            }
+        }
+    }
+
+    private List<String> plan(String url, String sql) {
+        List<String> key = Arrays.asList(url, sql);
+        long now = System.currentTimeMillis();
+        CachedPlan cached = plans.get(key);
+        if (cached == null || now - cached.takenAt > PLAN_TTL_MILLIS) {
+            if (plans.size() >= ring.length()) {
+                plans.values().removeIf(plan -> now - plan.takenAt > PLAN_TTL_MILLIS);
+                if (plans.size() >= ring.length()) {
+                    plans.clear();
+                }
+            }
+            cached = new CachedPlan(now, explain(url, sql));
+            plans.put(key, cached);
+        }
+        return cached.plan;
+    }
+
+    private List<String> explain(String url, String sql) {
+        List<String> plan = new ArrayList<>();
+        try {
+            Connection connection = connections.get(url);
+            if (connection == null || connection.isClosed()) {
+                connection = DriverManager.getConnection(url);
+                connections.put(url, connection);
+            }
+            explain(connection, sql, plan);
+        } catch (SQLException e) {
+            plan.add("EXPLAIN QUERY PLAN failed: " + e.getMessage());
+        }
+        return plan;
+    }
+
+    private static void explain(Connection connection, String sql, List<String> plan) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("EXPLAIN QUERY PLAN " + sql)) {
+            // the plan does not depend on the bound values, so bind NULLs
+            int parameters = statement.getParameterMetaData().getParameterCount();
+            for (int i = 1; i <= parameters; i++) {
+                statement.setNull(i, Types.NULL);
+            }
+            try (ResultSet results = statement.executeQuery()) {
+                while (results.next()) {
+                    plan.add(results.getString("detail"));
+                }
+            }
+        }
+    }
+
+    private static final class CachedPlan {
+        private final long takenAt;
+        private final List<String> plan;
+
+        CachedPlan(long takenAt, List<String> plan) {
+            this.takenAt = takenAt;
+            this.plan = plan;
+        }
+    }
+
+    public static class Entry {
+        private final long timestamp;
+        private final String sql;
+        private final List<String> parameterTypes;
+        private final long rows;
+        private final double elapsedMs;
+        // filled in by the explainer thread; empty until then
+        private volatile List<String> queryPlan = Collections.emptyList();
+
+        Entry(long timestamp, String sql, List<String> parameterTypes, long rows, double elapsedMs) {
+            this.timestamp = timestamp;
+            this.sql = sql;
+            this.parameterTypes = parameterTypes;
+            this.rows = rows;
+            this.elapsedMs = elapsedMs;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public List<String> getParameterTypes() {
+            return parameterTypes;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public double getElapsedMs() {
+            return elapsedMs;
+        }
+
+        public List<String> getQueryPlan() {
+            return queryPlan;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package db;
+
+import com.j256.ormlite.dao.Dao;
+
+import java.sql.SQLException;
+
+// A per-table change counter kept in the "table_versions" table and bumped by triggers on every
+// INSERT, UPDATE and DELETE. In-memory structures derived from a table (e.g. the facet index)
+// compare the version with the one they were built from to know when they are stale. Because the
+// triggers live in the database, writes from any connection or process are seen.
+public final class TableVersions {
+
+    // the changes to all tracked tables added up, for callers on a plain JDBC connection
+    public static final String TOTAL_SQL = "SELECT IFNULL(SUM(version), 0) FROM table_versions";
+
+    private TableVersions() {
+    }
+
+    public static void install(Dao<?, ?> dao, String tableName) throws SQLException {
+        dao.executeRawNoArgs("CREATE TABLE IF NOT EXISTS table_versions "
+                + "(name VARCHAR PRIMARY KEY, version BIGINT NOT NULL)");
+        dao.executeRaw("INSERT OR IGNORE INTO table_versions (name, version) VALUES (?, 0)", tableName);
+        for (String event : new String[]{"INSERT", "UPDATE", "DELETE"}) {
+            dao.executeRawNoArgs("CREATE TRIGGER IF NOT EXISTS " + tableName + "_version_" + event.toLowerCase()
+                    + " AFTER " + event + " ON " + tableName + " BEGIN "
+                    + "UPDATE table_versions SET version = version + 1 WHERE name = '" + tableName + "'; END");
+        }
+    }
+
+    public static long current(Dao<?, ?> dao, String tableName) throws SQLException {
+        return dao.queryRawValue("SELECT version FROM table_versions WHERE name = ?", tableName);
+    }
+}
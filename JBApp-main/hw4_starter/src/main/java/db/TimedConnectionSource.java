@@ -0,0 +1,394 @@
+package db;
+
+import com.j256.ormlite.dao.ObjectCache;
+import com.j256.ormlite.field.FieldType;
+import com.j256.ormlite.field.SqlType;
+import com.j256.ormlite.jdbc.JdbcPooledConnectionSource;
+import com.j256.ormlite.logger.Logger;
+import com.j256.ormlite.stmt.GenericRowMapper;
+import com.j256.ormlite.stmt.StatementBuilder.StatementType;
+import com.j256.ormlite.support.CompiledStatement;
+import com.j256.ormlite.support.DatabaseConnection;
+import com.j256.ormlite.support.DatabaseConnectionProxy;
+import com.j256.ormlite.support.DatabaseResults;
+import com.j256.ormlite.support.GeneratedKeyHolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Arrays;
+
+// Pooled connection source whose connections report every statement to a SlowQueryLog. Every DAO
+// built on it (Employer, Job, ...) is covered without wrapping the DAOs themselves. Connections
+// are wrapped in an ORMLite DatabaseConnectionProxy rather than through
+// BaseJdbcConnectionSource.setDatabaseConnectionProxyFactory, which is static and would report the
+// statements of every connection source in the JVM to one log.
+//
+// A compiled statement (queryForAll, query builders, iterators, ...) is timed from run until its
+// results (or, failing that, the statement) are closed, so for queries the time includes ORMLite
+// mapping the rows - the time the DAO call spent. The one-shot calls (create, update, delete,
+// queryForId, countOf, executeRaw) are timed around the call. The log takes query plans on a
+// connection of its own to url, never on the statement's.
+public class TimedConnectionSource extends JdbcPooledConnectionSource {
+
+    private final String url;
+    private final SlowQueryLog log;
+
+    public TimedConnectionSource(String url, SlowQueryLog log) throws SQLException {
+        super(url);
+        this.url = url;
+        this.log = log;
+    }
+
+    @Override
+    protected DatabaseConnection makeConnection(Logger logger) throws SQLException {
+        return new TimedConnection(super.makeConnection(logger));
+    }
+
+    private class TimedConnection extends DatabaseConnectionProxy {
+
+        TimedConnection(DatabaseConnection connection) {
+            super(connection);
+        }
+
+        @Override
+        public CompiledStatement compileStatement(String statement, StatementType type, FieldType[] argFieldTypes,
+                                                  int resultFlags, boolean cacheStore) throws SQLException {
+            return new TimedStatement(super.compileStatement(statement, type, argFieldTypes, resultFlags, cacheStore));
+        }
+
+        @Override
+        public int insert(String statement, Object[] args, FieldType[] argFieldTypes, GeneratedKeyHolder keyHolder)
+                throws SQLException {
+            long start = System.nanoTime();
+            int rows = super.insert(statement, args, argFieldTypes, keyHolder);
+            log.finished(url, statement, parameterTypes(args, argFieldTypes), rows, System.nanoTime() - start);
+            return rows;
+        }
+
+        @Override
+        public int update(String statement, Object[] args, FieldType[] argFieldTypes) throws SQLException {
+            long start = System.nanoTime();
+            int rows = super.update(statement, args, argFieldTypes);
+            log.finished(url, statement, parameterTypes(args, argFieldTypes), rows, System.nanoTime() - start);
+            return rows;
+        }
+
+        @Override
+        public int delete(String statement, Object[] args, FieldType[] argFieldTypes) throws SQLException {
+            long start = System.nanoTime();
+            int rows = super.delete(statement, args, argFieldTypes);
+            log.finished(url, statement, parameterTypes(args, argFieldTypes), rows, System.nanoTime() - start);
+            return rows;
+        }
+
+        @Override
+        public <T> Object queryForOne(String statement, Object[] args, FieldType[] argFieldTypes,
+                                      GenericRowMapper<T> rowMapper, ObjectCache objectCache) throws SQLException {
+            long start = System.nanoTime();
+            Object result = super.queryForOne(statement, args, argFieldTypes, rowMapper, objectCache);
+            log.finished(url, statement, parameterTypes(args, argFieldTypes), result == null ? 0 : 1,
+                    System.nanoTime() - start);
+            return result;
+        }
+
+        @Override
+        public long queryForLong(String statement) throws SQLException {
+            long start = System.nanoTime();
+            long value = super.queryForLong(statement);
+            log.finished(url, statement, new String[0], 1, System.nanoTime() - start);
+            return value;
+        }
+
+        @Override
+        public long queryForLong(String statement, Object[] args, FieldType[] argFieldTypes) throws SQLException {
+            long start = System.nanoTime();
+            long value = super.queryForLong(statement, args, argFieldTypes);
+            log.finished(url, statement, parameterTypes(args, argFieldTypes), 1, System.nanoTime() - start);
+            return value;
+        }
+
+        @Override
+        public int executeStatement(String statement, int resultFlags) throws SQLException {
+            long start = System.nanoTime();
+            int rows = super.executeStatement(statement, resultFlags);
+            log.finished(url, statement, new String[0], rows, System.nanoTime() - start);
+            return rows;
+        }
+    }
+
+    private class TimedStatement implements CompiledStatement {
+        private final CompiledStatement statement;
+        private String[] parameterTypes = new String[0];
+        private long startNanos = -1;
+        private long rows;
+
+        TimedStatement(CompiledStatement statement) {
+            this.statement = statement;
+        }
+
+        @Override
+        public DatabaseResults runQuery(ObjectCache objectCache) throws SQLException {
+            startNanos = System.nanoTime();
+            rows = 0;
+            return new TimedResults(this, statement.runQuery(objectCache));
+        }
+
+        @Override
+        public int runUpdate() throws SQLException {
+            long start = System.nanoTime();
+            int updated = statement.runUpdate();
+            log.finished(url, getStatement(), parameterTypes, updated, System.nanoTime() - start);
+            return updated;
+        }
+
+        @Override
+        public int runExecute() throws SQLException {
+            long start = System.nanoTime();
+            int updated = statement.runExecute();
+            log.finished(url, getStatement(), parameterTypes, updated, System.nanoTime() - start);
+            return updated;
+        }
+
+        @Override
+        public void setObject(int parameterIndex, Object obj, SqlType sqlType) throws SQLException {
+            // ORMLite's indexes start at 0
+            if (parameterIndex >= parameterTypes.length) {
+                parameterTypes = Arrays.copyOf(parameterTypes, parameterIndex + 1);
+            }
+            parameterTypes[parameterIndex] = parameterType(obj, sqlType);
+            statement.setObject(parameterIndex, obj, sqlType);
+        }
+
+        @Override
+        public int getColumnCount() throws SQLException {
+            return statement.getColumnCount();
+        }
+
+        @Override
+        public String getColumnName(int columnIndex) throws SQLException {
+            return statement.getColumnName(columnIndex);
+        }
+
+        @Override
+        public void setMaxRows(int max) throws SQLException {
+            statement.setMaxRows(max);
+        }
+
+        @Override
+        public void setQueryTimeout(long millis) throws SQLException {
+            statement.setQueryTimeout(millis);
+        }
+
+        @Override
+        public String getStatement() {
+            return statement.getStatement();
+        }
+
+        @Override
+        public void cancel() throws SQLException {
+            statement.cancel();
+        }
+
+        @Override
+        public void close() throws IOException {
+            finish();
+            statement.close();
+        }
+
+        @Override
+        public void closeQuietly() {
+            finish();
+            statement.closeQuietly();
+        }
+
+        private void finish() {
+            if (startNanos >= 0) {
+                long elapsed = System.nanoTime() - startNanos;
+                startNanos = -1;
+                log.finished(url, getStatement(), parameterTypes, rows, elapsed);
+            }
+        }
+    }
+
+    // counts the rows read and stops the statement's clock when closed
+    private static class TimedResults implements DatabaseResults {
+        private final TimedStatement statement;
+        private final DatabaseResults results;
+
+        TimedResults(TimedStatement statement, DatabaseResults results) {
+            this.statement = statement;
+            this.results = results;
+        }
+
+        private boolean counted(boolean moved) {
+            if (moved) {
+                statement.rows++;
+            }
+            return moved;
+        }
+
+        @Override
+        public boolean first() throws SQLException {
+            return counted(results.first());
+        }
+
+        @Override
+        public boolean next() throws SQLException {
+            return counted(results.next());
+        }
+
+        @Override
+        public boolean previous() throws SQLException {
+            return results.previous();
+        }
+
+        @Override
+        public boolean last() throws SQLException {
+            return results.last();
+        }
+
+        @Override
+        public boolean moveRelative(int offset) throws SQLException {
+            return results.moveRelative(offset);
+        }
+
+        @Override
+        public boolean moveAbsolute(int position) throws SQLException {
+            return results.moveAbsolute(position);
+        }
+
+        @Override
+        public int getColumnCount() throws SQLException {
+            return results.getColumnCount();
+        }
+
+        @Override
+        public String[] getColumnNames() throws SQLException {
+            return results.getColumnNames();
+        }
+
+        @Override
+        public int findColumn(String columnName) throws SQLException {
+            return results.findColumn(columnName);
+        }
+
+        @Override
+        public String getString(int columnIndex) throws SQLException {
+            return results.getString(columnIndex);
+        }
+
+        @Override
+        public boolean getBoolean(int columnIndex) throws SQLException {
+            return results.getBoolean(columnIndex);
+        }
+
+        @Override
+        public char getChar(int columnIndex) throws SQLException {
+            return results.getChar(columnIndex);
+        }
+
+        @Override
+        public byte getByte(int columnIndex) throws SQLException {
+            return results.getByte(columnIndex);
+        }
+
+        @Override
+        public byte[] getBytes(int columnIndex) throws SQLException {
+            return results.getBytes(columnIndex);
+        }
+
+        @Override
+        public short getShort(int columnIndex) throws SQLException {
+            return results.getShort(columnIndex);
+        }
+
+        @Override
+        public int getInt(int columnIndex) throws SQLException {
+            return results.getInt(columnIndex);
+        }
+
+        @Override
+        public long getLong(int columnIndex) throws SQLException {
+            return results.getLong(columnIndex);
+        }
+
+        @Override
+        public float getFloat(int columnIndex) throws SQLException {
+            return results.getFloat(columnIndex);
+        }
+
+        @Override
+        public double getDouble(int columnIndex) throws SQLException {
+            return results.getDouble(columnIndex);
+        }
+
+        @Override
+        public Timestamp getTimestamp(int columnIndex) throws SQLException {
+            return results.getTimestamp(columnIndex);
+        }
+
+        @Override
+        public InputStream getBlobStream(int columnIndex) throws SQLException {
+            return results.getBlobStream(columnIndex);
+        }
+
+        @Override
+        public BigDecimal getBigDecimal(int columnIndex) throws SQLException {
+            return results.getBigDecimal(columnIndex);
+        }
+
+        @Override
+        public Object getObject(int columnIndex) throws SQLException {
+            return results.getObject(columnIndex);
+        }
+
+        @Override
+        public boolean wasNull(int columnIndex) throws SQLException {
+            return results.wasNull(columnIndex);
+        }
+
+        @Override
+        public ObjectCache getObjectCacheForRetrieve() {
+            return results.getObjectCacheForRetrieve();
+        }
+
+        @Override
+        public ObjectCache getObjectCacheForStore() {
+            return results.getObjectCacheForStore();
+        }
+
+        @Override
+        public void close() throws IOException {
+            statement.finish();
+            results.close();
+        }
+
+        @Override
+        public void closeQuietly() {
+            statement.finish();
+            results.closeQuietly();
+        }
+    }
+
+    private static String[] parameterTypes(Object[] args, FieldType[] argFieldTypes) {
+        String[] types = new String[args == null ? 0 : args.length];
+        for (int i = 0; i < types.length; i++) {
+            SqlType sqlType = argFieldTypes == null || i >= argFieldTypes.length || argFieldTypes[i] == null
+                    ? null
+                    : argFieldTypes[i].getSqlType();
+            types[i] = parameterType(args[i], sqlType);
+        }
+        return types;
+    }
+
+    // the Java type of a bound value, or its SQL type when it is null
+    private static String parameterType(Object value, SqlType sqlType) {
+        if (value != null) {
+            return value.getClass().getSimpleName();
+        }
+        return sqlType == null ? "null" : sqlType.name();
+    }
+}
@@ -77,6 +77,11 @@ public class Employer {
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, name, sector, summary);
+        // same fields as Objects.hash, without allocating a varargs array (Job.hashCode calls this)
+        int result = Objects.hashCode(id);
+        result = 31 * result + Objects.hashCode(name);
+        result = 31 * result + Objects.hashCode(sector);
+        result = 31 * result + Objects.hashCode(summary);
+        return result;
     }
 }
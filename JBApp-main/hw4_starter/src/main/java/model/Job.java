@@ -155,11 +155,24 @@ public class Job {
                 && title.equals(job.title) && Objects.equals(datePosted, job.datePosted)
                 && Objects.equals(deadline, job.deadline) && Objects.equals(domain, job.domain)
                 && Objects.equals(location, job.location) && Objects.equals(requirements, job.requirements)
-                && Objects.equals(employer, job.employer) && Objects.equals(employerId, job.employerId);
+                && Objects.equals(employer, job.employer) && employerId == job.employerId;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, title, datePosted, deadline, domain, location, fullTime, salaryBased, requirements, payAmount, employer, employerId);
+        // same fields as Objects.hash, without boxing them into a varargs array
+        int result = id;
+        result = 31 * result + Objects.hashCode(title);
+        result = 31 * result + Objects.hashCode(datePosted);
+        result = 31 * result + Objects.hashCode(deadline);
+        result = 31 * result + Objects.hashCode(domain);
+        result = 31 * result + Objects.hashCode(location);
+        result = 31 * result + (fullTime ? 1 : 0);
+        result = 31 * result + (salaryBased ? 1 : 0);
+        result = 31 * result + Objects.hashCode(requirements);
+        result = 31 * result + payAmount;
+        result = 31 * result + Objects.hashCode(employer);
+        result = 31 * result + employerId;
+        return result;
     }
 }
@@ -0,0 +1,74 @@
+package model;
+
+import com.j256.ormlite.field.DatabaseField;
+import com.j256.ormlite.table.DatabaseTable;
+
+import java.util.Date;
+import java.util.Objects;
+
+// Outbox entry: job jobId matched saved search savedSearchId. Consumers read these in id order
+// (GET /alerts?after=..) and deliver them to the subscriber.
+@DatabaseTable(tableName = "job_alerts")
+public class JobAlert {
+    @DatabaseField(generatedId = true)
+    private int id;
+    @DatabaseField(canBeNull = false)
+    private int savedSearchId;
+    @DatabaseField(canBeNull = false)
+    private int jobId;
+    @DatabaseField(canBeNull = false)
+    private Date createdAt;
+
+    public JobAlert() {
+    }
+
+    public JobAlert(int savedSearchId, int jobId, Date createdAt) {
+        this.savedSearchId = savedSearchId;
+        this.jobId = jobId;
+        this.createdAt = createdAt;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public int getSavedSearchId() {
+        return savedSearchId;
+    }
+
+    public int getJobId() {
+        return jobId;
+    }
+
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    @Override
+    public String toString() {
+        return "JobAlert{" +
+                "id=" + id +
+                ", savedSearchId=" + savedSearchId +
+                ", jobId=" + jobId +
+                ", createdAt=" + createdAt +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        JobAlert jobAlert = (JobAlert) o;
+        return id == jobAlert.id && savedSearchId == jobAlert.savedSearchId && jobId == jobAlert.jobId
+                && Objects.equals(createdAt, jobAlert.createdAt);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, savedSearchId, jobId, createdAt);
+    }
+}
@@ -0,0 +1,154 @@
+package model;
+
+import java.util.Date;
+
+// Immutable, compact read-only view of a Job for holding large job lists in memory:
+//  - domain and location are shared through a StringDictionary; title (unique per job) and
+//    requirements (free text) are kept as they are, since a dictionary of them would only grow
+//  - datePosted and deadline are epoch milliseconds instead of java.util.Date objects
+//  - the Employer object is not kept, only employerId
+//  - equals/hashCode compare the fields directly and allocate nothing
+public final class JobRow {
+
+    private final int id;
+    private final String title;
+    private final long datePosted;
+    private final long deadline;
+    private final String domain;
+    private final String location;
+    private final boolean fullTime;
+    private final boolean salaryBased;
+    private final String requirements;
+    private final int payAmount;
+    private final int employerId;
+
+    public JobRow(int id, String title, long datePosted, long deadline, String domain, String location,
+                  boolean fullTime, boolean salaryBased, String requirements, int payAmount, int employerId) {
+        this.id = id;
+        this.title = title;
+        this.datePosted = datePosted;
+        this.deadline = deadline;
+        this.domain = domain;
+        this.location = location;
+        this.fullTime = fullTime;
+        this.salaryBased = salaryBased;
+        this.requirements = requirements;
+        this.payAmount = payAmount;
+        this.employerId = employerId;
+    }
+
+    public static JobRow from(Job job, StringDictionary dictionary) {
+        return new JobRow(job.getId(), job.getTitle(), job.getDatePosted().getTime(), job.getDeadline().getTime(),
+                dictionary.intern(job.getDomain()), dictionary.intern(job.getLocation()), job.isFullTime(),
+                job.isSalaryBased(), job.getRequirements(), job.getPayAmount(), job.getEmployer());
+    }
+
+    public Job toJob() {
+        Job job = new Job();
+        job.setId(id);
+        job.setTitle(title);
+        job.setDatePosted(new Date(datePosted));
+        job.setDeadline(new Date(deadline));
+        job.setDomain(domain);
+        job.setLocation(location);
+        job.setFullTime(fullTime);
+        job.setSalaryBased(salaryBased);
+        job.setRequirements(requirements);
+        job.setPayAmount(payAmount);
+        job.setEmployerId(employerId);
+        return job;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public long getDatePosted() {
+        return datePosted;
+    }
+
+    public long getDeadline() {
+        return deadline;
+    }
+
+    public String getDomain() {
+        return domain;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public boolean isFullTime() {
+        return fullTime;
+    }
+
+    public boolean isSalaryBased() {
+        return salaryBased;
+    }
+
+    public String getRequirements() {
+        return requirements;
+    }
+
+    public int getPayAmount() {
+        return payAmount;
+    }
+
+    public int getEmployerId() {
+        return employerId;
+    }
+
+    @Override
+    public String toString() {
+        return "JobRow{" +
+                "id=" + id +
+                ", title='" + title + '\'' +
+                ", datePosted=" + datePosted +
+                ", deadline=" + deadline +
+                ", domain='" + domain + '\'' +
+                ", location='" + location + '\'' +
+                ", fullTime=" + fullTime +
+                ", salaryBased=" + salaryBased +
+                ", requirements='" + requirements + '\'' +
+                ", payAmount=" + payAmount +
+                ", employerId=" + employerId +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        JobRow row = (JobRow) o;
+        return id == row.id && datePosted == row.datePosted && deadline == row.deadline && fullTime == row.fullTime
+                && salaryBased == row.salaryBased && payAmount == row.payAmount && employerId == row.employerId
+                && equal(title, row.title) && equal(domain, row.domain) && equal(location, row.location)
+                && equal(requirements, row.requirements);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = id;
+        result = 31 * result + (title == null ? 0 : title.hashCode());
+        result = 31 * result + Long.hashCode(datePosted);
+        result = 31 * result + Long.hashCode(deadline);
+        result = 31 * result + (domain == null ? 0 : domain.hashCode());
+        result = 31 * result + (location == null ? 0 : location.hashCode());
+        result = 31 * result + (fullTime ? 1 : 0);
+        result = 31 * result + (salaryBased ? 1 : 0);
+        result = 31 * result + (requirements == null ? 0 : requirements.hashCode());
+        result = 31 * result + payAmount;
+        result = 31 * result + employerId;
+        return result;
+    }
+
+    // dictionary strings are usually the same instance, so check identity before equals()
+    private static boolean equal(String a, String b) {
+        return a == b || (a != null && a.equals(b));
+    }
+}
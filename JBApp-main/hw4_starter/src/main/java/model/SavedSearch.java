@@ -0,0 +1,123 @@
+package model;
+
+import com.j256.ormlite.field.DatabaseField;
+import com.j256.ormlite.table.DatabaseTable;
+
+import java.util.Objects;
+
+// A subscriber's saved job search. Every criterion is optional (null / 0 = any): a new job
+// matches when its domain and location equal the given ones (ignoring case), fullTime is equal,
+// payAmount is at least minPay and every keyword appears as a word in its requirements.
+@DatabaseTable(tableName = "saved_searches")
+public class SavedSearch {
+    @DatabaseField(generatedId = true)
+    private int id;
+    @DatabaseField(canBeNull = false)
+    private String subscriber;
+    @DatabaseField
+    private String domain;
+    @DatabaseField
+    private String location;
+    @DatabaseField
+    private Boolean fullTime;
+    @DatabaseField(canBeNull = false)
+    private int minPay;
+    @DatabaseField
+    private String keywords;
+
+    public SavedSearch() {
+    }
+
+    public SavedSearch(String subscriber, String domain, String location, Boolean fullTime, int minPay, String keywords) {
+        this.subscriber = subscriber;
+        this.domain = domain;
+        this.location = location;
+        this.fullTime = fullTime;
+        this.minPay = minPay;
+        this.keywords = keywords;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getSubscriber() {
+        return subscriber;
+    }
+
+    public String getDomain() {
+        return domain;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public Boolean getFullTime() {
+        return fullTime;
+    }
+
+    public int getMinPay() {
+        return minPay;
+    }
+
+    public String getKeywords() {
+        return keywords;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public void setSubscriber(String subscriber) {
+        this.subscriber = subscriber;
+    }
+
+    public void setDomain(String domain) {
+        this.domain = domain;
+    }
+
+    public void setLocation(String location) {
+        this.location = location;
+    }
+
+    public void setFullTime(Boolean fullTime) {
+        this.fullTime = fullTime;
+    }
+
+    public void setMinPay(int minPay) {
+        this.minPay = minPay;
+    }
+
+    public void setKeywords(String keywords) {
+        this.keywords = keywords;
+    }
+
+    @Override
+    public String toString() {
+        return "SavedSearch{" +
+                "id=" + id +
+                ", subscriber='" + subscriber + '\'' +
+                ", domain='" + domain + '\'' +
+                ", location='" + location + '\'' +
+                ", fullTime=" + fullTime +
+                ", minPay=" + minPay +
+                ", keywords='" + keywords + '\'' +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SavedSearch that = (SavedSearch) o;
+        return id == that.id && minPay == that.minPay && Objects.equals(subscriber, that.subscriber)
+                && Objects.equals(domain, that.domain) && Objects.equals(location, that.location)
+                && Objects.equals(fullTime, that.fullTime) && Objects.equals(keywords, that.keywords);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, subscriber, domain, location, fullTime, minPay, keywords);
+    }
+}
@@ -0,0 +1,39 @@
+package model;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// Maps equal strings to one shared instance. Job columns like domain and location only take a
+// handful of distinct values, so rows built through the same dictionary share those strings
+// instead of each holding its own copy. Unlike String.intern() the dictionary can be dropped
+// together with the rows that use it. It holds at most maxSize strings; once full, new values are
+// returned as they are, so a column with more distinct values than expected cannot grow it
+// without bound.
+public class StringDictionary {
+
+    private final ConcurrentMap<String, String> values = new ConcurrentHashMap<>();
+    private final int maxSize;
+
+    public StringDictionary(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String existing = values.get(value);
+        if (existing != null) {
+            return existing;
+        }
+        if (values.size() >= maxSize) {
+            return value;
+        }
+        existing = values.putIfAbsent(value, value);
+        return existing == null ? value : existing;
+    }
+
+    public int size() {
+        return values.size();
+    }
+}
@@ -0,0 +1,87 @@
+package model;
+
+import com.j256.ormlite.field.DatabaseFieldConfig;
+import com.j256.ormlite.table.DatabaseTableConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Hand-written ORMLite table configs for the model classes. They mirror the @DatabaseTable /
+// @DatabaseField annotations, so DAOs built from them skip the annotation
+// scan that ORMLite otherwise does the first time a DAO is created. Keep these in sync with the
+// annotations (TableConfigsTest checks that they match).
+public final class TableConfigs {
+
+    private TableConfigs() {
+    }
+
+    public static DatabaseTableConfig<Employer> employers() {
+        List<DatabaseFieldConfig> fields = new ArrayList<>();
+        fields.add(generatedId("id"));
+        fields.add(field("name", false, true));
+        fields.add(field("sector", false, false));
+        fields.add(field("summary", true, false));
+        return new DatabaseTableConfig<>(Employer.class, "employers", fields);
+    }
+
+    public static DatabaseTableConfig<Job> jobs() {
+        List<DatabaseFieldConfig> fields = new ArrayList<>();
+        fields.add(generatedId("id"));
+        fields.add(field("title", false, true));
+        fields.add(field("datePosted", false, false));
+        fields.add(field("deadline", false, false));
+        fields.add(field("domain", false, false));
+        fields.add(field("location", false, false));
+        fields.add(field("fullTime", false, false));
+        fields.add(field("salaryBased", false, false));
+        fields.add(field("requirements", false, false));
+        fields.add(field("payAmount", false, false));
+        fields.add(field("employerId", false, false));
+        return new DatabaseTableConfig<>(Job.class, "jobs", fields);
+    }
+
+    public static DatabaseTableConfig<SavedSearch> savedSearches() {
+        List<DatabaseFieldConfig> fields = new ArrayList<>();
+        fields.add(generatedId("id"));
+        fields.add(field("subscriber", false, false));
+        fields.add(field("domain", true, false));
+        fields.add(field("location", true, false));
+        fields.add(field("fullTime", true, false));
+        fields.add(field("minPay", false, false));
+        fields.add(field("keywords", true, false));
+        return new DatabaseTableConfig<>(SavedSearch.class, "saved_searches", fields);
+    }
+
+    public static DatabaseTableConfig<JobAlert> jobAlerts() {
+        List<DatabaseFieldConfig> fields = new ArrayList<>();
+        fields.add(generatedId("id"));
+        fields.add(field("savedSearchId", false, false));
+        fields.add(field("jobId", false, false));
+        fields.add(field("createdAt", false, false));
+        return new DatabaseTableConfig<>(JobAlert.class, "job_alerts", fields);
+    }
+
+    // the same table with ids that may be assigned by the caller: create() keeps a non-zero id
+    // instead of letting AUTOINCREMENT pick one. Used for shards, whose ids come from IdAllocator.
+    public static <T> DatabaseTableConfig<T> withAssignedIds(DatabaseTableConfig<T> config) {
+        for (DatabaseFieldConfig field : config.getFieldConfigs()) {
+            if (field.isGeneratedId()) {
+                field.setAllowGeneratedIdInsert(true);
+            }
+        }
+        return config;
+    }
+
+    private static DatabaseFieldConfig generatedId(String fieldName) {
+        DatabaseFieldConfig config = new DatabaseFieldConfig(fieldName);
+        config.setGeneratedId(true);
+        return config;
+    }
+
+    private static DatabaseFieldConfig field(String fieldName, boolean canBeNull, boolean unique) {
+        DatabaseFieldConfig config = new DatabaseFieldConfig(fieldName);
+        config.setCanBeNull(canBeNull);
+        config.setUnique(unique);
+        return config;
+    }
+}
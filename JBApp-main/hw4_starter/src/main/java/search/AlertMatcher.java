@@ -0,0 +1,233 @@
+package search;
+
+import model.Job;
+import model.SavedSearch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ObjIntConsumer;
+
+// Inverted index over saved searches, used to find every search a new job matches without
+// evaluating each search in turn. Each search is a conjunction of predicates (domain, location,
+// fullTime, one per keyword) plus a pay floor. It is filed under a single "anchor" predicate, the
+// one shared by the fewest searches, in the posting list for that predicate's value. Matching a
+// job walks only the posting lists for the job's own values, so it only looks at searches whose
+// anchor already holds, and then checks their remaining predicates directly. Searches with no
+// predicates at all are checked on the pay floor alone.
+//
+// An AlertMatcher is immutable; build a new one when the saved searches change.
+public class AlertMatcher {
+
+    private static final int[] NONE = new int[0];
+    private static final String[] NO_KEYWORDS = new String[0];
+
+    // per search, by position
+    private final int[] searchIds;
+    private final String[] domains;
+    private final String[] locations;
+    private final Boolean[] fullTimes;
+    private final int[] minPay;
+    private final String[][] keywords;
+
+    // posting lists of search positions, keyed by the value of the anchor predicate
+    private final int[] unconstrained;
+    private final Map<String, int[]> byDomain;
+    private final Map<String, int[]> byLocation;
+    private final Map<String, int[]> byKeyword;
+    private final int[][] byFullTime;
+
+    private AlertMatcher(int[] searchIds, String[] domains, String[] locations, Boolean[] fullTimes, int[] minPay,
+                         String[][] keywords, int[] unconstrained, Map<String, int[]> byDomain,
+                         Map<String, int[]> byLocation, Map<String, int[]> byKeyword, int[][] byFullTime) {
+        this.searchIds = searchIds;
+        this.domains = domains;
+        this.locations = locations;
+        this.fullTimes = fullTimes;
+        this.minPay = minPay;
+        this.keywords = keywords;
+        this.unconstrained = unconstrained;
+        this.byDomain = byDomain;
+        this.byLocation = byLocation;
+        this.byKeyword = byKeyword;
+        this.byFullTime = byFullTime;
+    }
+
+    public static AlertMatcher build(Collection<SavedSearch> searches) {
+        int n = searches.size();
+        int[] searchIds = new int[n];
+        String[] domains = new String[n];
+        String[] locations = new String[n];
+        Boolean[] fullTimes = new Boolean[n];
+        int[] minPay = new int[n];
+        String[][] keywords = new String[n][];
+
+        // first pass: normalize and count how many searches use each predicate value
+        Map<String, Integer> frequency = new HashMap<>();
+        int s = 0;
+        for (SavedSearch search : searches) {
+            searchIds[s] = search.getId();
+            domains[s] = normalize(search.getDomain());
+            locations[s] = normalize(search.getLocation());
+            fullTimes[s] = search.getFullTime();
+            minPay[s] = search.getMinPay();
+            Set<String> tokens = tokens(search.getKeywords());
+            keywords[s] = tokens.isEmpty() ? NO_KEYWORDS : tokens.toArray(new String[0]);
+            for (String key : predicateKeys(domains[s], locations[s], fullTimes[s], keywords[s])) {
+                frequency.merge(key, 1, Integer::sum);
+            }
+            s++;
+        }
+
+        // second pass: file each search under its rarest predicate
+        List<Integer> unconstrained = new ArrayList<>();
+        Map<String, List<Integer>> byDomain = new HashMap<>();
+        Map<String, List<Integer>> byLocation = new HashMap<>();
+        Map<String, List<Integer>> byKeyword = new HashMap<>();
+        List<List<Integer>> byFullTime = Arrays.asList(new ArrayList<>(), new ArrayList<>());
+        for (s = 0; s < n; s++) {
+            String anchor = null;
+            for (String key : predicateKeys(domains[s], locations[s], fullTimes[s], keywords[s])) {
+                if (anchor == null || frequency.get(key) < frequency.get(anchor)) {
+                    anchor = key;
+                }
+            }
+            if (anchor == null) {
+                unconstrained.add(s);
+                continue;
+            }
+            String value = anchor.substring(2);
+            switch (anchor.charAt(0)) {
+                case 'd':
+                    byDomain.computeIfAbsent(value, k -> new ArrayList<>()).add(s);
+                    break;
+                case 'l':
+                    byLocation.computeIfAbsent(value, k -> new ArrayList<>()).add(s);
+                    break;
+                case 'k':
+                    byKeyword.computeIfAbsent(value, k -> new ArrayList<>()).add(s);
+                    break;
+                default:
+                    byFullTime.get(Boolean.parseBoolean(value) ? 1 : 0).add(s);
+            }
+        }
+        return new AlertMatcher(searchIds, domains, locations, fullTimes, minPay, keywords, toArray(unconstrained),
+                toArrays(byDomain), toArrays(byLocation), toArrays(byKeyword),
+                new int[][]{toArray(byFullTime.get(0)), toArray(byFullTime.get(1))});
+    }
+
+    public int size() {
+        return searchIds.length;
+    }
+
+    // ids of the saved searches the job matches
+    public List<Integer> match(Job job) {
+        List<Integer> result = new ArrayList<>();
+        match(Collections.singletonList(job), (j, searchId) -> result.add(searchId));
+        return result;
+    }
+
+    // calls sink(job, savedSearchId) for every match; each matching search is reported once per job
+    public void match(Collection<Job> jobs, ObjIntConsumer<Job> sink) {
+        for (Job job : jobs) {
+            String domain = normalize(job.getDomain());
+            String location = normalize(job.getLocation());
+            Set<String> tokens = tokens(job.getRequirements());
+            verify(job, unconstrained, domain, location, tokens, sink);
+            verify(job, byDomain.get(domain), domain, location, tokens, sink);
+            verify(job, byLocation.get(location), domain, location, tokens, sink);
+            verify(job, byFullTime[job.isFullTime() ? 1 : 0], domain, location, tokens, sink);
+            for (String token : tokens) {
+                verify(job, byKeyword.get(token), domain, location, tokens, sink);
+            }
+        }
+    }
+
+    // lower-cased words of the text, without duplicates
+    public static Set<String> tokens(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}+#]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private void verify(Job job, int[] postings, String domain, String location, Set<String> tokens,
+                        ObjIntConsumer<Job> sink) {
+        if (postings == null) {
+            return;
+        }
+        int pay = job.getPayAmount();
+        for (int s : postings) {
+            if (pay >= minPay[s]
+                    && (domains[s] == null || domains[s].equals(domain))
+                    && (locations[s] == null || locations[s].equals(location))
+                    && (fullTimes[s] == null || fullTimes[s] == job.isFullTime())
+                    && containsAll(tokens, keywords[s])) {
+                sink.accept(job, searchIds[s]);
+            }
+        }
+    }
+
+    private static boolean containsAll(Set<String> tokens, String[] keywords) {
+        for (String keyword : keywords) {
+            if (!tokens.contains(keyword)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // "d:", "l:", "f:" and "k:" prefixed keys of a search's predicates
+    private static List<String> predicateKeys(String domain, String location, Boolean fullTime, String[] keywords) {
+        List<String> keys = new ArrayList<>(3 + keywords.length);
+        if (domain != null) {
+            keys.add("d:" + domain);
+        }
+        if (location != null) {
+            keys.add("l:" + location);
+        }
+        if (fullTime != null) {
+            keys.add("f:" + fullTime);
+        }
+        for (String keyword : keywords) {
+            keys.add("k:" + keyword);
+        }
+        return keys;
+    }
+
+    private static String normalize(String value) {
+        return value == null ? null : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static Map<String, int[]> toArrays(Map<String, List<Integer>> lists) {
+        Map<String, int[]> arrays = new HashMap<>();
+        for (Map.Entry<String, List<Integer>> entry : lists.entrySet()) {
+            arrays.put(entry.getKey(), toArray(entry.getValue()));
+        }
+        return arrays;
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        if (list.isEmpty()) {
+            return NONE;
+        }
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+}
@@ -0,0 +1,104 @@
+package search;
+
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.misc.TransactionManager;
+import db.Database;
+import db.TableVersions;
+import model.Job;
+import model.JobAlert;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Matches newly inserted jobs against all saved searches and writes the matches to the
+// job_alerts outbox. Progress is kept in alert_cursor as the highest job id already matched;
+// job ids are AUTOINCREMENT and SQLite has a single writer, so every job with a larger id is new,
+// whichever connection or process inserted it. Each batch of jobs, its alerts and the cursor
+// update are committed in one transaction, so a job is matched exactly once.
+//
+// On first use the cursor starts at the current highest job id: existing jobs do not raise alerts.
+public class AlertWorker implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AlertWorker.class);
+
+    private final Database database;
+    private final int batchSize;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "alert-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private AlertMatcher matcher;
+    private long matcherVersion = -1;
+
+    public AlertWorker(Database database, int batchSize) throws SQLException {
+        this.database = database;
+        this.batchSize = batchSize;
+        Dao<Job, Integer> jobDao = database.getJobDao();
+        jobDao.executeRawNoArgs("CREATE TABLE IF NOT EXISTS alert_cursor "
+                + "(id INTEGER PRIMARY KEY CHECK (id = 0), lastJobId INTEGER NOT NULL)");
+        jobDao.executeRawNoArgs("INSERT OR IGNORE INTO alert_cursor (id, lastJobId) "
+                + "SELECT 0, IFNULL(MAX(id), 0) FROM jobs");
+    }
+
+    public void start(long periodMillis) {
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                while (processPending() == batchSize) {
+                    // keep going until caught up
+                }
+            } catch (Exception e) {
+                LOG.error("Matching new jobs against saved searches failed", e);
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // matches the next batch of new jobs; returns how many jobs were processed
+    public synchronized int processPending() throws SQLException {
+        AlertMatcher current = currentMatcher();
+        Dao<Job, Integer> jobDao = database.getJobDao();
+        Dao<JobAlert, Integer> alertDao = database.getJobAlertDao();
+        return TransactionManager.callInTransaction(database.getConnectionSource(), () -> {
+            long cursor = jobDao.queryRawValue("SELECT lastJobId FROM alert_cursor WHERE id = 0");
+            List<Job> jobs = jobDao.queryBuilder()
+                    .orderBy("id", true)
+                    .limit((long) batchSize)
+                    .where().gt("id", cursor)
+                    .query();
+            if (jobs.isEmpty()) {
+                return 0;
+            }
+            Date now = new Date();
+            List<JobAlert> alerts = new ArrayList<>();
+            current.match(jobs, (job, searchId) -> alerts.add(new JobAlert(searchId, job.getId(), now)));
+            if (!alerts.isEmpty()) {
+                alertDao.create(alerts);
+            }
+            jobDao.executeRaw("UPDATE alert_cursor SET lastJobId = ? WHERE id = 0",
+                    String.valueOf(jobs.get(jobs.size() - 1).getId()));
+            return jobs.size();
+        });
+    }
+
+    private AlertMatcher currentMatcher() throws SQLException {
+        long version = TableVersions.current(database.getSavedSearchDao(), "saved_searches");
+        if (matcher == null || version != matcherVersion) {
+            matcher = AlertMatcher.build(database.getSavedSearchDao().queryForAll());
+            matcherVersion = version;
+        }
+        return matcher;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
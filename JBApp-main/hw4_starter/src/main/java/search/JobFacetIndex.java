@@ -0,0 +1,236 @@
+package search;
+
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.dao.GenericRawResults;
+import model.Job;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Facet counts for the jobs listing, served from in-memory bitmaps instead of a GROUP BY per
+// request. For each facet value there is a SparseBitmap of the ids of the jobs that have it, so a
+// value held by a handful of jobs costs a few bytes however large the table is. Without a filter
+// a count is the bitmap's cardinality; with one it is the cardinality of (value AND filter), the
+// filter being the intersection of its values' bitmaps.
+//
+// The bitmaps are kept up to date write by write rather than rebuilt. Triggers on the jobs table
+// append every insert, delete and update of a faceted column to "job_facet_changes" (a delete or
+// update logs the old values as removed, an insert or update the new ones as added); a request
+// first applies the rows logged since the last one it saw, which is a single MAX(seq) lookup when
+// there are none. The index is only built from a full scan the first time, when more than
+// MAX_CHANGES changes are pending, or when rows it had not seen yet were pruned by another index
+// on the same database. Replaying a change the scan already saw does nothing, so the scan needs no
+// transaction around it. The log is pruned down to its last row every MAX_CHANGES changes.
+public class JobFacetIndex {
+
+    public static final List<String> FACETS = Collections.unmodifiableList(
+            Arrays.asList("domain", "location", "fullTime", "salaryBased", "pay"));
+
+    // lower bounds of the pay buckets; a job falls into the last bucket whose bound is <= payAmount
+    private static final int[] PAY_BUCKETS = {0, 50000, 100000, 150000};
+
+    private static final String CHANGES = "job_facet_changes";
+    private static final int MAX_CHANGES = 100000;
+
+    private final Dao<Job, Integer> jobDao;
+    private final String tableName;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // facet -> value -> ids of the jobs with that value; values without jobs are removed
+    private final Map<String, Map<String, SparseBitmap>> bitmaps = new HashMap<>();
+    // seq of the last change applied, -1 until the first build
+    private volatile long lastChange = -1;
+    private long prunedAt;
+
+    public JobFacetIndex(Dao<Job, Integer> jobDao) {
+        this.jobDao = jobDao;
+        this.tableName = jobDao.getTableName();
+        for (String facet : FACETS) {
+            bitmaps.put(facet, new LinkedHashMap<>());
+        }
+    }
+
+    // counts per value for each requested facet, restricted to jobs matching the filter
+    public Map<String, Map<String, Integer>> counts(JobFilter filter, Collection<String> facets) throws SQLException {
+        refresh();
+        lock.readLock().lock();
+        try {
+            SparseBitmap mask = mask(filter);
+            Map<String, Map<String, Integer>> result = new LinkedHashMap<>();
+            for (String facet : facets) {
+                Map<String, SparseBitmap> values = bitmaps.get(facet);
+                if (values == null) {
+                    throw new IllegalArgumentException("Unknown facet: " + facet);
+                }
+                Map<String, Integer> counts = new LinkedHashMap<>();
+                for (Map.Entry<String, SparseBitmap> entry : values.entrySet()) {
+                    int count = mask == null
+                            ? entry.getValue().cardinality()
+                            : entry.getValue().andCardinality(mask);
+                    if (count > 0) {
+                        counts.put(entry.getKey(), count);
+                    }
+                }
+                result.put(facet, counts);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public static String payBucket(int payAmount) {
+        int i = PAY_BUCKETS.length - 1;
+        while (i > 0 && payAmount < PAY_BUCKETS[i]) {
+            i--;
+        }
+        return i == PAY_BUCKETS.length - 1
+                ? PAY_BUCKETS[i] + "+"
+                : PAY_BUCKETS[i] + "-" + (PAY_BUCKETS[i + 1] - 1);
+    }
+
+    // the jobs matching the filter, or null for no filter; call with the read lock held
+    private SparseBitmap mask(JobFilter filter) {
+        if (filter.isEmpty()) {
+            return null;
+        }
+        List<SparseBitmap> matches = new ArrayList<>();
+        for (Map.Entry<String, String> entry : filter.getValues().entrySet()) {
+            // JobFilter has already checked booleans and lowercased them to match the keys here
+            SparseBitmap bitmap = bitmaps.get(entry.getKey()).get(entry.getValue());
+            if (bitmap == null) {
+                return new SparseBitmap();
+            }
+            matches.add(bitmap);
+        }
+        // smallest first, so every intersection is at most as large as the smallest set
+        matches.sort(Comparator.comparingInt(SparseBitmap::cardinality));
+        SparseBitmap mask = matches.get(0);
+        for (int i = 1; i < matches.size(); i++) {
+            mask = mask.and(matches.get(i));
+        }
+        return mask;
+    }
+
+    private void refresh() throws SQLException {
+        if (lastChange >= 0 && latestChange() == lastChange) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (lastChange < 0) {
+                install();
+                rebuild();
+            } else if (!applyChanges()) {
+                rebuild();
+            }
+            if (lastChange - prunedAt > MAX_CHANGES) {
+                // keeps the last row, so the seq of the next change is still lastChange + 1
+                jobDao.executeRawNoArgs("DELETE FROM " + CHANGES + " WHERE seq < " + lastChange);
+                prunedAt = lastChange;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void install() throws SQLException {
+        jobDao.executeRawNoArgs("CREATE TABLE IF NOT EXISTS " + CHANGES + " (seq INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + "jobId INTEGER NOT NULL, added INTEGER NOT NULL, domain VARCHAR, location VARCHAR, "
+                + "fullTime VARCHAR, salaryBased VARCHAR, payAmount INTEGER)");
+        jobDao.executeRawNoArgs("CREATE TRIGGER IF NOT EXISTS " + tableName + "_facets_insert AFTER INSERT ON "
+                + tableName + " BEGIN " + logRow("NEW", 1) + " END");
+        jobDao.executeRawNoArgs("CREATE TRIGGER IF NOT EXISTS " + tableName + "_facets_update AFTER UPDATE OF "
+                + "id, domain, location, fullTime, salaryBased, payAmount ON " + tableName + " BEGIN "
+                + logRow("OLD", 0) + " " + logRow("NEW", 1) + " END");
+        jobDao.executeRawNoArgs("CREATE TRIGGER IF NOT EXISTS " + tableName + "_facets_delete AFTER DELETE ON "
+                + tableName + " BEGIN " + logRow("OLD", 0) + " END");
+    }
+
+    private static String logRow(String row, int added) {
+        return "INSERT INTO " + CHANGES + " (jobId, added, domain, location, fullTime, salaryBased, payAmount) "
+                + "VALUES (" + row + ".id, " + added + ", " + row + ".domain, " + row + ".location, "
+                + "CASE WHEN " + row + ".fullTime THEN 'true' ELSE 'false' END, "
+                + "CASE WHEN " + row + ".salaryBased THEN 'true' ELSE 'false' END, " + row + ".payAmount);";
+    }
+
+    private long latestChange() throws SQLException {
+        return jobDao.queryRawValue("SELECT IFNULL(MAX(seq), 0) FROM " + CHANGES);
+    }
+
+    // builds the bitmaps from a full scan; call with the write lock held
+    private void rebuild() throws SQLException {
+        long latest = latestChange();
+        for (Map<String, SparseBitmap> values : bitmaps.values()) {
+            values.clear();
+        }
+        List<Job> jobs = jobDao.queryBuilder()
+                .selectColumns("id", "domain", "location", "fullTime", "salaryBased", "payAmount")
+                .query();
+        for (Job job : jobs) {
+            update(job.getId(), true, job.getDomain(), job.getLocation(), String.valueOf(job.isFullTime()),
+                    String.valueOf(job.isSalaryBased()), job.getPayAmount());
+        }
+        lastChange = latest;
+    }
+
+    // applies the changes logged since lastChange; returns false when they cannot be replayed and
+    // the index has to be rebuilt instead. Call with the write lock held.
+    private boolean applyChanges() throws SQLException {
+        List<String[]> rows;
+        GenericRawResults<String[]> results = jobDao.queryRaw("SELECT seq, jobId, added, domain, location, fullTime, "
+                + "salaryBased, payAmount FROM " + CHANGES + " WHERE seq > " + lastChange
+                + " ORDER BY seq LIMIT " + (MAX_CHANGES + 1));
+        try {
+            rows = results.getResults();
+        } finally {
+            try {
+                results.close();
+            } catch (IOException e) {
+                throw new SQLException(e);
+            }
+        }
+        if (rows.isEmpty()) {
+            return true;
+        }
+        if (rows.size() > MAX_CHANGES || Long.parseLong(rows.get(0)[0]) != lastChange + 1) {
+            return false;
+        }
+        for (String[] row : rows) {
+            update(Integer.parseInt(row[1]), "1".equals(row[2]), row[3], row[4], row[5], row[6],
+                    Integer.parseInt(row[7]));
+            lastChange = Long.parseLong(row[0]);
+        }
+        return true;
+    }
+
+    private void update(int jobId, boolean added, String domain, String location, String fullTime,
+                        String salaryBased, int payAmount) {
+        update("domain", domain, jobId, added);
+        update("location", location, jobId, added);
+        update("fullTime", fullTime, jobId, added);
+        update("salaryBased", salaryBased, jobId, added);
+        update("pay", payBucket(payAmount), jobId, added);
+    }
+
+    private void update(String facet, String value, int jobId, boolean added) {
+        Map<String, SparseBitmap> values = bitmaps.get(facet);
+        if (added) {
+            values.computeIfAbsent(value, v -> new SparseBitmap()).add(jobId);
+            return;
+        }
+        SparseBitmap bitmap = values.get(value);
+        if (bitmap != null && bitmap.remove(jobId) && bitmap.cardinality() == 0) {
+            values.remove(value);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package search;
+
+import com.j256.ormlite.dao.CloseableIterator;
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.stmt.PreparedQuery;
+import com.j256.ormlite.stmt.QueryBuilder;
+import com.j256.ormlite.stmt.Where;
+import model.Job;
+import model.JobRow;
+import model.StringDictionary;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+// Equality filter on the jobs listing, e.g. /jobs?domain=tech&fullTime=true. Only the fields in
+// FIELDS can be filtered on; other query parameters are ignored. fullTime and salaryBased must be
+// "true" or "false" (in any case, kept lowercased); anything else is an IllegalArgumentException
+// rather than silently matching the false rows.
+public class JobFilter {
+
+    public static final List<String> FIELDS = Collections.unmodifiableList(
+            Arrays.asList("domain", "location", "fullTime", "salaryBased"));
+
+    private final Map<String, String> values;
+
+    public JobFilter(Map<String, String> values) {
+        Map<String, String> checked = new LinkedHashMap<>(values);
+        for (Map.Entry<String, String> entry : checked.entrySet()) {
+            if (isBoolean(entry.getKey())) {
+                entry.setValue(parseBoolean(entry.getKey(), entry.getValue()));
+            }
+        }
+        this.values = Collections.unmodifiableMap(checked);
+    }
+
+    // build a filter from request parameters, e.g. JobFilter.fromParams(req::queryParams)
+    public static JobFilter fromParams(Function<String, String> params) {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (String field : FIELDS) {
+            String value = params.apply(field);
+            if (value != null) {
+                values.put(field, value);
+            }
+        }
+        return new JobFilter(values);
+    }
+
+    public Map<String, String> getValues() {
+        return values;
+    }
+
+    public boolean isEmpty() {
+        return values.isEmpty();
+    }
+
+    public List<Job> query(Dao<Job, Integer> dao) throws SQLException {
+        return query(dao, 0, 0);
+    }
+
+    // one page of the matching jobs in id order: those with an id above afterId, at most limit of
+    // them; limit 0 means no limit, and with neither the rows come back in table order
+    public List<Job> query(Dao<Job, Integer> dao, long afterId, long limit) throws SQLException {
+        if (values.isEmpty() && afterId <= 0 && limit <= 0) {
+            return dao.queryForAll();
+        }
+        return dao.query(prepare(dao, afterId, limit));
+    }
+
+    // the same page as query(), read one Job at a time into JobRows that share their domain and
+    // location strings through dictionary, so only the compact rows are held
+    public List<JobRow> rows(Dao<Job, Integer> dao, long afterId, long limit, StringDictionary dictionary)
+            throws SQLException {
+        List<JobRow> rows = new ArrayList<>();
+        try (CloseableIterator<Job> jobs = dao.iterator(prepare(dao, afterId, limit))) {
+            while (jobs.hasNext()) {
+                rows.add(JobRow.from(jobs.next(), dictionary));
+            }
+        } catch (IOException e) {
+            throw new SQLException(e);
+        }
+        return rows;
+    }
+
+    private PreparedQuery<Job> prepare(Dao<Job, Integer> dao, long afterId, long limit) throws SQLException {
+        QueryBuilder<Job, Integer> qb = dao.queryBuilder();
+        if (afterId > 0 || limit > 0) {
+            qb.orderBy("id", true);
+        }
+        if (limit > 0) {
+            qb.limit(limit);
+        }
+        int clauses = values.size() + (afterId > 0 ? 1 : 0);
+        if (clauses > 0) {
+            Where<Job, Integer> where = qb.where();
+            for (Map.Entry<String, String> entry : values.entrySet()) {
+                where.eq(entry.getKey(), isBoolean(entry.getKey()) ? Boolean.valueOf(entry.getValue()) : entry.getValue());
+            }
+            if (afterId > 0) {
+                where.gt("id", afterId);
+            }
+            if (clauses > 1) {
+                where.and(clauses);
+            }
+        }
+        return qb.prepare();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        JobFilter filter = (JobFilter) o;
+        return values.equals(filter.values);
+    }
+
+    @Override
+    public int hashCode() {
+        return values.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "JobFilter{" + values + '}';
+    }
+
+    static boolean isBoolean(String field) {
+        return "fullTime".equals(field) || "salaryBased".equals(field);
+    }
+
+    private static String parseBoolean(String field, String value) {
+        if ("true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value)) {
+            return value.toLowerCase();
+        }
+        throw new IllegalArgumentException(field + " must be true or false, not: " + value);
+    }
+}
@@ -0,0 +1,239 @@
+package search;
+
+import java.util.Arrays;
+
+// A set of non-negative ints (job ids) stored the way Roaring bitmaps do it. The ids are grouped
+// by their upper 16 bits into chunks; a chunk is a sorted char[] of the lower 16 bits while it
+// holds at most ARRAY_LIMIT ids and a 65536-bit long[] above that. A value shared by a few jobs
+// therefore costs two bytes per job instead of a bit for every row of the table, and
+// intersections only visit the chunks both sets have. Not thread-safe.
+final class SparseBitmap {
+
+    private static final int ARRAY_LIMIT = 4096;
+    private static final int WORDS = 1024;
+
+    // chunks sorted by key; chunks[i] is a char[] of which sizes[i] are used, or a long[WORDS]
+    private int[] keys = new int[0];
+    private Object[] chunks = new Object[0];
+    private int[] sizes = new int[0];
+    private int count;
+    private int cardinality;
+
+    int cardinality() {
+        return cardinality;
+    }
+
+    boolean contains(int id) {
+        int i = Arrays.binarySearch(keys, 0, count, id >>> 16);
+        return i >= 0 && contains(chunks[i], sizes[i], (char) id);
+    }
+
+    // returns whether the id was not there yet
+    boolean add(int id) {
+        int key = id >>> 16;
+        char low = (char) id;
+        int i = Arrays.binarySearch(keys, 0, count, key);
+        if (i < 0) {
+            i = -i - 1;
+            insertChunk(i, key, new char[4], 0);
+        }
+        Object chunk = chunks[i];
+        if (chunk instanceof long[]) {
+            long[] bits = (long[]) chunk;
+            if ((bits[low >>> 6] & (1L << low)) != 0) {
+                return false;
+            }
+            bits[low >>> 6] |= 1L << low;
+        } else {
+            char[] values = (char[]) chunk;
+            int size = sizes[i];
+            int j = Arrays.binarySearch(values, 0, size, low);
+            if (j >= 0) {
+                return false;
+            }
+            j = -j - 1;
+            if (size == ARRAY_LIMIT) {
+                long[] bits = toBits(values, size);
+                bits[low >>> 6] |= 1L << low;
+                chunks[i] = bits;
+            } else {
+                if (size == values.length) {
+                    values = Arrays.copyOf(values, Math.min(ARRAY_LIMIT, size * 2));
+                    chunks[i] = values;
+                }
+                System.arraycopy(values, j, values, j + 1, size - j);
+                values[j] = low;
+            }
+        }
+        sizes[i]++;
+        cardinality++;
+        return true;
+    }
+
+    // returns whether the id was there
+    boolean remove(int id) {
+        int i = Arrays.binarySearch(keys, 0, count, id >>> 16);
+        if (i < 0) {
+            return false;
+        }
+        char low = (char) id;
+        Object chunk = chunks[i];
+        int size = sizes[i];
+        if (chunk instanceof long[]) {
+            long[] bits = (long[]) chunk;
+            if ((bits[low >>> 6] & (1L << low)) == 0) {
+                return false;
+            }
+            bits[low >>> 6] &= ~(1L << low);
+            if (size - 1 <= ARRAY_LIMIT / 2) {
+                chunks[i] = toArray(bits, size - 1);
+            }
+        } else {
+            char[] values = (char[]) chunk;
+            int j = Arrays.binarySearch(values, 0, size, low);
+            if (j < 0) {
+                return false;
+            }
+            System.arraycopy(values, j + 1, values, j, size - j - 1);
+        }
+        cardinality--;
+        if (--sizes[i] == 0) {
+            removeChunk(i);
+        }
+        return true;
+    }
+
+    // the ids in both sets
+    SparseBitmap and(SparseBitmap other) {
+        SparseBitmap result = new SparseBitmap();
+        SparseBitmap small = count <= other.count ? this : other;
+        SparseBitmap large = small == this ? other : this;
+        for (int i = 0; i < small.count; i++) {
+            int j = Arrays.binarySearch(large.keys, 0, large.count, small.keys[i]);
+            if (j < 0) {
+                continue;
+            }
+            char[] values = new char[Math.min(small.sizes[i], large.sizes[j])];
+            int size = 0;
+            if (small.chunks[i] instanceof long[] && large.chunks[j] instanceof long[]) {
+                long[] a = (long[]) small.chunks[i];
+                long[] b = (long[]) large.chunks[j];
+                long[] bits = new long[WORDS];
+                for (int w = 0; w < WORDS; w++) {
+                    bits[w] = a[w] & b[w];
+                    size += Long.bitCount(bits[w]);
+                }
+                if (size > 0) {
+                    result.insertChunk(result.count, small.keys[i], size > ARRAY_LIMIT ? bits : toArray(bits, size), size);
+                }
+                continue;
+            }
+            // walk the array chunk (the smaller one if both are) and probe the other
+            boolean smallIsArray = small.chunks[i] instanceof char[]
+                    && (large.chunks[j] instanceof long[] || small.sizes[i] <= large.sizes[j]);
+            Object walked = smallIsArray ? small.chunks[i] : large.chunks[j];
+            int walkedSize = smallIsArray ? small.sizes[i] : large.sizes[j];
+            Object probed = smallIsArray ? large.chunks[j] : small.chunks[i];
+            int probedSize = smallIsArray ? large.sizes[j] : small.sizes[i];
+            char[] walkedValues = (char[]) walked;
+            for (int k = 0; k < walkedSize; k++) {
+                if (contains(probed, probedSize, walkedValues[k])) {
+                    values[size++] = walkedValues[k];
+                }
+            }
+            if (size > 0) {
+                result.insertChunk(result.count, small.keys[i], values, size);
+            }
+        }
+        return result;
+    }
+
+    // the number of ids in both sets, without building the intersection
+    int andCardinality(SparseBitmap other) {
+        SparseBitmap small = count <= other.count ? this : other;
+        SparseBitmap large = small == this ? other : this;
+        int total = 0;
+        for (int i = 0; i < small.count; i++) {
+            int j = Arrays.binarySearch(large.keys, 0, large.count, small.keys[i]);
+            if (j < 0) {
+                continue;
+            }
+            Object a = small.chunks[i];
+            Object b = large.chunks[j];
+            if (a instanceof long[] && b instanceof long[]) {
+                long[] x = (long[]) a;
+                long[] y = (long[]) b;
+                for (int w = 0; w < WORDS; w++) {
+                    total += Long.bitCount(x[w] & y[w]);
+                }
+            } else if (a instanceof char[] && (b instanceof long[] || small.sizes[i] <= large.sizes[j])) {
+                total += probeCount((char[]) a, small.sizes[i], b, large.sizes[j]);
+            } else {
+                total += probeCount((char[]) b, large.sizes[j], a, small.sizes[i]);
+            }
+        }
+        return total;
+    }
+
+    private static int probeCount(char[] walked, int walkedSize, Object probed, int probedSize) {
+        int total = 0;
+        for (int k = 0; k < walkedSize; k++) {
+            if (contains(probed, probedSize, walked[k])) {
+                total++;
+            }
+        }
+        return total;
+    }
+
+    private static boolean contains(Object chunk, int size, char low) {
+        if (chunk instanceof long[]) {
+            return (((long[]) chunk)[low >>> 6] & (1L << low)) != 0;
+        }
+        return Arrays.binarySearch((char[]) chunk, 0, size, low) >= 0;
+    }
+
+    private static long[] toBits(char[] values, int size) {
+        long[] bits = new long[WORDS];
+        for (int k = 0; k < size; k++) {
+            bits[values[k] >>> 6] |= 1L << values[k];
+        }
+        return bits;
+    }
+
+    private static char[] toArray(long[] bits, int size) {
+        char[] values = new char[Math.max(size, 4)];
+        int k = 0;
+        for (int w = 0; w < WORDS; w++) {
+            long word = bits[w];
+            while (word != 0) {
+                values[k++] = (char) ((w << 6) + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+        return values;
+    }
+
+    private void insertChunk(int i, int key, Object chunk, int size) {
+        if (count == keys.length) {
+            int capacity = Math.max(4, count * 2);
+            keys = Arrays.copyOf(keys, capacity);
+            chunks = Arrays.copyOf(chunks, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+        }
+        System.arraycopy(keys, i, keys, i + 1, count - i);
+        System.arraycopy(chunks, i, chunks, i + 1, count - i);
+        System.arraycopy(sizes, i, sizes, i + 1, count - i);
+        keys[i] = key;
+        chunks[i] = chunk;
+        sizes[i] = size;
+        cardinality += size;
+        count++;
+    }
+
+    private void removeChunk(int i) {
+        System.arraycopy(keys, i + 1, keys, i, count - i - 1);
+        System.arraycopy(chunks, i + 1, chunks, i, count - i - 1);
+        System.arraycopy(sizes, i + 1, sizes, i, count - i - 1);
+        chunks[--count] = null;
+    }
+}
@@ -0,0 +1,75 @@
+package server;
+
+import config.AppConfig;
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.server.ConnectionFactory;
+import org.eclipse.jetty.server.ForwardedRequestCustomizer;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
+import spark.embeddedserver.jetty.JettyServerFactory;
+
+import java.util.function.IntConsumer;
+
+// Builds the embedded Jetty server from the server.* settings in jbapp.properties instead of
+// Spark's defaults. Spark keeps connectors that the factory has already added, so the connector
+// configured here replaces the one Spark would create from Spark.port(). Settings left at -1
+// keep Jetty's own default. Like Spark's connector it honours X-Forwarded-* / Forwarded headers,
+// so behind a reverse proxy req.ip(), the scheme and the host are the client's; turn
+// server.trustForwardHeaders off when clients can reach the server without the proxy.
+public class ConfiguredJettyServer implements JettyServerFactory {
+
+    private final AppConfig config;
+
+    public ConfiguredJettyServer(AppConfig config) {
+        this.config = config;
+    }
+
+    @Override
+    public Server create(int maxThreads, int minThreads, int threadTimeoutMillis) {
+        QueuedThreadPool threadPool = new QueuedThreadPool(
+                config.getInt("server.threads.max", 200),
+                config.getInt("server.threads.min", 8),
+                config.getInt("server.threads.idleTimeoutMs", 60000));
+        return create(threadPool);
+    }
+
+    @Override
+    public Server create(ThreadPool threadPool) {
+        Server server = threadPool == null ? new Server() : new Server(threadPool);
+
+        HttpConfiguration http = new HttpConfiguration();
+        http.setSendServerVersion(false);
+        http.setPersistentConnectionsEnabled(config.getBoolean("server.keepAlive", true));
+        setIfConfigured("server.requestHeaderSize", http::setRequestHeaderSize);
+        setIfConfigured("server.responseHeaderSize", http::setResponseHeaderSize);
+        setIfConfigured("server.outputBufferSize", http::setOutputBufferSize);
+        if (config.getBoolean("server.trustForwardHeaders", true)) {
+            http.addCustomizer(new ForwardedRequestCustomizer());
+        }
+
+        ConnectionFactory[] factories = config.getBoolean("server.http2", false)
+                ? new ConnectionFactory[]{new HttpConnectionFactory(http), new HTTP2CServerConnectionFactory(http)}
+                : new ConnectionFactory[]{new HttpConnectionFactory(http)};
+        ServerConnector connector = new ServerConnector(server,
+                config.getInt("server.acceptors", -1),
+                config.getInt("server.selectors", -1),
+                factories);
+        connector.setHost(config.getString("server.host", "0.0.0.0"));
+        connector.setPort(config.getInt("server.port", 7000));
+        connector.setIdleTimeout(config.getLong("server.idleTimeoutMs", 30000));
+        setIfConfigured("server.acceptQueueSize", connector::setAcceptQueueSize);
+        server.addConnector(connector);
+        return server;
+    }
+
+    private void setIfConfigured(String key, IntConsumer setter) {
+        int value = config.getInt(key, -1);
+        if (value > 0) {
+            setter.accept(value);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package server;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import model.JobRow;
+
+import java.io.IOException;
+import java.util.Date;
+
+// Writes a JobRow as the JSON of the Job it was read from: the same fields in the same order, and
+// the epoch-millis dates formatted by the Gson's own Date adapter, so /jobs looks the same whether
+// it is built from Jobs or JobRows. JobRows are never read from JSON.
+public class JobRowAdapter implements TypeAdapterFactory {
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        if (type.getRawType() != JobRow.class) {
+            return null;
+        }
+        TypeAdapter<Date> dates = gson.getAdapter(Date.class);
+        return (TypeAdapter<T>) new TypeAdapter<JobRow>() {
+            @Override
+            public void write(JsonWriter out, JobRow row) throws IOException {
+                if (row == null) {
+                    out.nullValue();
+                    return;
+                }
+                out.beginObject();
+                out.name("id").value(row.getId());
+                out.name("title").value(row.getTitle());
+                out.name("datePosted");
+                dates.write(out, new Date(row.getDatePosted()));
+                out.name("deadline");
+                dates.write(out, new Date(row.getDeadline()));
+                out.name("domain").value(row.getDomain());
+                out.name("location").value(row.getLocation());
+                out.name("fullTime").value(row.isFullTime());
+                out.name("salaryBased").value(row.isSalaryBased());
+                out.name("requirements").value(row.getRequirements());
+                out.name("payAmount").value(row.getPayAmount());
+                out.name("employerId").value(row.getEmployerId());
+                out.endObject();
+            }
+
+            @Override
+            public JobRow read(JsonReader in) {
+                throw new UnsupportedOperationException("JobRows are only written as JSON");
+            }
+        };
+    }
+}
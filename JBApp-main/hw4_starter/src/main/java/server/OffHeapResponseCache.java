@@ -0,0 +1,119 @@
+package server;
+
+import org.eclipse.jetty.server.Response;
+import search.JobFilter;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Serialized /jobs responses kept in direct (off-heap) ByteBuffers, so a repeated listing costs
+// neither a Gson.toJson String nor its UTF-8 byte[] on the heap. write() hands the buffer to
+// Jetty's HttpOutput, which writes it to the socket as it is; only a container that is not Jetty
+// gets a copy through the servlet output stream.
+//
+// Entries are evicted in least-recently-used order once their total size exceeds maxBytes. Each
+// entry carries the data version it was built from (ShardedDatabase.jobsVersion()); a lookup at
+// another version is a miss and drops the entry. An evicted buffer is only released once no
+// response is still writing it and the GC has collected it, so the direct memory in use can
+// briefly exceed maxBytes.
+public class OffHeapResponseCache {
+
+    private final long maxBytes;
+    private final LinkedHashMap<Object, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public OffHeapResponseCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    // the key of a /jobs listing. Its parts are compared with equals(), not joined into a string,
+    // so a filter value containing ", " or "=" cannot collide with another filter.
+    public static List<Object> jobsKey(JobFilter filter, long afterId, long limit, String facets) {
+        return Arrays.asList(filter, afterId, limit, facets);
+    }
+
+    // the cached body for key if it was stored at this version, as a buffer of its own (the
+    // caller may consume it); null otherwise
+    public synchronized ByteBuffer get(Object key, long version) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.version != version) {
+            entries.remove(key);
+            bytes -= entry.body.capacity();
+            entry = null;
+        }
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.body.duplicate();
+    }
+
+    // copies body off-heap and stores it; returns the stored body like get(), or null when it is
+    // larger than maxBytes and was not stored
+    public ByteBuffer put(Object key, long version, byte[] body) {
+        if (body.length > maxBytes) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(body.length);
+        buffer.put(body).flip();
+        ByteBuffer readOnly = buffer.asReadOnlyBuffer();
+        synchronized (this) {
+            Entry previous = entries.put(key, new Entry(version, readOnly));
+            if (previous != null) {
+                bytes -= previous.body.capacity();
+            }
+            bytes += body.length;
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (bytes > maxBytes && eldest.hasNext()) {
+                Entry evicted = eldest.next();
+                eldest.remove();
+                bytes -= evicted.body.capacity();
+                evictions++;
+            }
+        }
+        return readOnly.duplicate();
+    }
+
+    // sends body as the complete response; status and content type must already be set
+    public static void write(HttpServletResponse response, ByteBuffer body) throws IOException {
+        response.setContentLength(body.remaining());
+        if (response instanceof Response) {
+            ((Response) response).getHttpOutput().sendContent(body);
+        } else {
+            Channels.newChannel(response.getOutputStream()).write(body);
+            response.flushBuffer();
+        }
+    }
+
+    public synchronized Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("maxBytes", maxBytes);
+        result.put("bytes", bytes);
+        result.put("entries", entries.size());
+        result.put("hits", hits);
+        result.put("misses", misses);
+        result.put("evictions", evictions);
+        return result;
+    }
+
+    private static class Entry {
+        private final long version;
+        private final ByteBuffer body;
+
+        Entry(long version, ByteBuffer body) {
+            this.version = version;
+            this.body = body;
+        }
+    }
+}
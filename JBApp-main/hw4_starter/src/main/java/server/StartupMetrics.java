@@ -0,0 +1,69 @@
+package server;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Tracks how long the server takes to become useful after the JVM starts. All times are in
+// milliseconds since JVM start:
+//  - readyMs: warm-up finished and /ready started returning 200
+//  - firstRequestMs: the first (non-/ready) request completed
+//  - steadyStateMs: mean request latency over a window of WINDOW requests stopped improving by
+//    more than STEADY_TOLERANCE compared with the previous window
+public class StartupMetrics {
+
+    private static final int WINDOW = 50;
+    private static final double STEADY_TOLERANCE = 0.10;
+
+    private final long jvmStartMillis = ManagementFactory.getRuntimeMXBean().getStartTime();
+
+    private volatile long readyMillis = -1;
+    private volatile long firstRequestMillis = -1;
+    private volatile long steadyStateMillis = -1;
+
+    private long windowNanos;
+    private int windowCount;
+    private double previousWindowMean = -1;
+
+    public boolean isReady() {
+        return readyMillis >= 0;
+    }
+
+    public void markReady() {
+        readyMillis = sinceJvmStart();
+    }
+
+    public synchronized void recordRequest(long elapsedNanos) {
+        if (firstRequestMillis < 0) {
+            firstRequestMillis = sinceJvmStart();
+        }
+        if (steadyStateMillis >= 0) {
+            return;
+        }
+        windowNanos += elapsedNanos;
+        windowCount++;
+        if (windowCount < WINDOW) {
+            return;
+        }
+        double mean = (double) windowNanos / windowCount;
+        if (previousWindowMean > 0 && mean >= previousWindowMean * (1 - STEADY_TOLERANCE)) {
+            steadyStateMillis = sinceJvmStart();
+        }
+        previousWindowMean = mean;
+        windowNanos = 0;
+        windowCount = 0;
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("ready", isReady());
+        result.put("readyMs", readyMillis);
+        result.put("firstRequestMs", firstRequestMillis);
+        result.put("steadyStateMs", steadyStateMillis);
+        return result;
+    }
+
+    private long sinceJvmStart() {
+        return System.currentTimeMillis() - jvmStartMillis;
+    }
+}
@@ -0,0 +1,27 @@
+package server;
+
+import com.google.gson.Gson;
+import search.JobFacetIndex;
+import search.JobFilter;
+import shard.ShardedDatabase;
+
+import java.sql.SQLException;
+
+// Runs the /employers and /jobs read path a few times before the server reports ready. This
+// pulls the database pages into SQLite's (and the OS's) page cache, lets ORMLite build its
+// mapped statements and lets Gson build and cache its type adapters for Employer and Job. The
+// facet bitmaps of every shard are built here too.
+public final class Warmup {
+
+    private Warmup() {
+    }
+
+    public static void run(ShardedDatabase database, Gson gson, int iterations) throws SQLException {
+        JobFilter all = JobFilter.fromParams(name -> null);
+        for (int i = 0; i < iterations; i++) {
+            gson.toJson(database.listEmployers(0, 0));
+            gson.toJson(database.listJobs(all, 0, 0));
+        }
+        database.facetCounts(all, JobFacetIndex.FACETS);
+    }
+}
@@ -0,0 +1,78 @@
+package shard;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+// Hands out employer and job ids that are unique across all shards, so that rows can be routed
+// and looked up by id and the shards' listings merged in id order. Ids are reserved from the
+// id_sequences table of a small catalog database in blocks of blockSize (the hi/lo scheme), so
+// the catalog is written once per block rather than once per row. Ids left in a block when the
+// server stops are never used.
+public class IdAllocator implements AutoCloseable {
+
+    private final Connection connection;
+    private final int blockSize;
+    // per sequence: {next id, end of the reserved block (exclusive)}
+    private final Map<String, long[]> blocks = new HashMap<>();
+
+    public IdAllocator(String uri, int blockSize) throws SQLException {
+        this.connection = DriverManager.getConnection(uri);
+        this.blockSize = blockSize;
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS id_sequences "
+                    + "(name TEXT PRIMARY KEY, next INTEGER NOT NULL)");
+        }
+    }
+
+    public synchronized int next(String sequence) throws SQLException {
+        long[] block = blocks.get(sequence);
+        if (block == null || block[0] == block[1]) {
+            block = reserve(sequence);
+            blocks.put(sequence, block);
+        }
+        return Math.toIntExact(block[0]++);
+    }
+
+    private long[] reserve(String sequence) throws SQLException {
+        connection.setAutoCommit(false);
+        try {
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT OR IGNORE INTO id_sequences (name, next) VALUES (?, 1)")) {
+                insert.setString(1, sequence);
+                insert.executeUpdate();
+            }
+            try (PreparedStatement update = connection.prepareStatement(
+                    "UPDATE id_sequences SET next = next + ? WHERE name = ?")) {
+                update.setInt(1, blockSize);
+                update.setString(2, sequence);
+                update.executeUpdate();
+            }
+            long end;
+            try (PreparedStatement select = connection.prepareStatement("SELECT next FROM id_sequences WHERE name = ?")) {
+                select.setString(1, sequence);
+                try (ResultSet results = select.executeQuery()) {
+                    results.next();
+                    end = results.getLong(1);
+                }
+            }
+            connection.commit();
+            return new long[]{end - blockSize, end};
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws SQLException {
+        connection.close();
+    }
+}
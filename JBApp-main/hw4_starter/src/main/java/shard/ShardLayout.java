@@ -0,0 +1,55 @@
+package shard;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// The number of shards the rows were routed with, kept in the catalog_settings table of the
+// catalog next to id_sequences. ShardRouter's ring depends on the shard count, so opening the
+// shards with a different db.shards would look employers and jobs up on the wrong file; the
+// count is recorded the first time the catalog is used and checked on every start after that.
+final class ShardLayout {
+
+    private static final String SHARDS = "shards";
+
+    private ShardLayout() {
+    }
+
+    // the recorded shard count; a catalog without one is taken to belong to shards
+    static int recorded(String catalogUri, int shards) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(catalogUri)) {
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("CREATE TABLE IF NOT EXISTS catalog_settings "
+                        + "(name TEXT PRIMARY KEY, value INTEGER NOT NULL)");
+            }
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT OR IGNORE INTO catalog_settings (name, value) VALUES (?, ?)")) {
+                insert.setString(1, SHARDS);
+                insert.setInt(2, shards);
+                insert.executeUpdate();
+            }
+            try (PreparedStatement select = connection.prepareStatement(
+                    "SELECT value FROM catalog_settings WHERE name = ?")) {
+                select.setString(1, SHARDS);
+                try (ResultSet results = select.executeQuery()) {
+                    results.next();
+                    return results.getInt(1);
+                }
+            }
+        }
+    }
+
+    // records shards once the rows have been moved to where a ring of that size routes them
+    static void record(String catalogUri, int shards) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(catalogUri);
+             PreparedStatement update = connection.prepareStatement(
+                     "UPDATE catalog_settings SET value = ? WHERE name = ?")) {
+            update.setInt(1, shards);
+            update.setString(2, SHARDS);
+            update.executeUpdate();
+        }
+    }
+}
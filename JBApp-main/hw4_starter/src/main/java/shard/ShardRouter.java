@@ -0,0 +1,59 @@
+package shard;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+// Consistent-hash ring that maps an employer id to one of the shards. Every shard owns
+// VIRTUAL_NODES points on a 64-bit ring and a key belongs to the first point at or after its own
+// hash (wrapping around). Going from N to N+1 shards only moves the keys that now land on the new
+// shard's points, about 1/(N+1) of them, where id % N would move nearly all of them.
+public class ShardRouter {
+
+    public static final int VIRTUAL_NODES = 128;
+
+    // ring points in ascending order and the shard owning each
+    private final long[] points;
+    private final int[] owners;
+
+    public ShardRouter(int shards) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("At least one shard is needed");
+        }
+        int n = shards * VIRTUAL_NODES;
+        long[] hashes = new long[n];
+        Integer[] order = new Integer[n];
+        for (int shard = 0; shard < shards; shard++) {
+            for (int v = 0; v < VIRTUAL_NODES; v++) {
+                int i = shard * VIRTUAL_NODES + v;
+                hashes[i] = mix(((long) (shard + 1) << 32) | v);
+                order[i] = i;
+            }
+        }
+        Arrays.sort(order, Comparator.comparingLong(i -> hashes[i]));
+        points = new long[n];
+        owners = new int[n];
+        for (int i = 0; i < n; i++) {
+            points[i] = hashes[order[i]];
+            owners[i] = order[i] / VIRTUAL_NODES;
+        }
+    }
+
+    public int shards() {
+        return points.length / VIRTUAL_NODES;
+    }
+
+    public int shardFor(int employerId) {
+        int i = Arrays.binarySearch(points, mix(employerId));
+        if (i < 0) {
+            i = -i - 1;
+        }
+        return owners[i == points.length ? 0 : i];
+    }
+
+    // SplitMix64 finalizer: spreads consecutive ids evenly over the ring
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
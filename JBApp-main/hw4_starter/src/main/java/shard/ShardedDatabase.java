@@ -0,0 +1,400 @@
+package shard;
+
+import com.j256.ormlite.dao.Dao;
+import db.BatchLoader;
+import db.Database;
+import db.SlowQueryLog;
+import db.TableVersions;
+import model.Employer;
+import model.Job;
+import model.JobRow;
+import model.StringDictionary;
+import search.JobFacetIndex;
+import search.JobFilter;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToIntFunction;
+
+// Employers and their jobs partitioned across several SQLite files. An employer and all of its
+// jobs live in the same shard, picked by ShardRouter from the employer id, so a batch passed to
+// createEmployers or createJobs is split by file and the files are written in parallel (SQLite
+// allows one writer per file). The HTTP API creates no employers or jobs; those batches come from
+// loaders such as bench.ShardingBenchmark. Listings are scatter-gather: every shard is asked for
+// its next page in id order, in parallel, and the pages are merged by id. Ids come from
+// IdAllocator and are unique across shards; the unique constraints on employer names and job
+// titles only hold within a shard.
+// Saved searches and alerts are not sharded, they stay in shard 0.
+//
+// The catalog also records the shard count (ShardLayout). Opening the shards with a different
+// count is refused, since the ring would route ids to other files than their rows are in, unless
+// rebalance is set: then the count may grow, and the employers the new ring routes elsewhere are
+// moved there with their jobs before the new count is recorded.
+//
+// With a single shard this is the plain single-file database: ids are left to AUTOINCREMENT and
+// every query runs on the calling thread.
+public class ShardedDatabase implements AutoCloseable {
+
+    private static final int DICTIONARY_SIZE = 10000;
+
+    private final List<Database> shards;
+    private final List<JobFacetIndex> facetIndexes = new ArrayList<>();
+    // domain and location strings shared by the rows of every listing
+    private final StringDictionary dictionary = new StringDictionary(DICTIONARY_SIZE);
+    private final ShardRouter router;
+    private final IdAllocator ids;
+    private final ExecutorService executor;
+
+    private ShardedDatabase(List<Database> shards, IdAllocator ids) {
+        this.shards = shards;
+        this.router = new ShardRouter(shards.size());
+        this.ids = ids;
+        for (Database shard : shards) {
+            facetIndexes.add(new JobFacetIndex(shard.getJobDao()));
+        }
+        if (shards.size() == 1) {
+            executor = null;
+        } else {
+            AtomicInteger threads = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(shards.size(), r -> {
+                Thread thread = new Thread(r, "shard-" + threads.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public static ShardedDatabase single(Database database) {
+        List<Database> shards = new ArrayList<>();
+        shards.add(database);
+        return new ShardedDatabase(shards, null);
+    }
+
+    // opens one shard per uri plus the catalog holding the id sequences; slowQueryLog may be null
+    public static ShardedDatabase open(List<String> uris, String catalogUri, SlowQueryLog slowQueryLog)
+            throws SQLException {
+        return open(uris, catalogUri, slowQueryLog, false);
+    }
+
+    // same as open(uris, catalogUri, slowQueryLog), moving the rows over to more shards than the
+    // catalog records when rebalance is set
+    public static ShardedDatabase open(List<String> uris, String catalogUri, SlowQueryLog slowQueryLog,
+                                       boolean rebalance) throws SQLException {
+        int recorded = ShardLayout.recorded(catalogUri, uris.size());
+        if (recorded != uris.size() && !rebalance) {
+            throw new IllegalArgumentException("The catalog " + catalogUri + " was written with " + recorded
+                    + " shards, not " + uris.size() + "; start once with db.shards.rebalance=true to move the rows");
+        }
+        if (recorded > uris.size()) {
+            throw new IllegalArgumentException("Cannot rebalance " + recorded + " shards onto " + uris.size()
+                    + ": the rows of the dropped shards would not be moved");
+        }
+        List<Database> shards = new ArrayList<>();
+        for (String uri : uris) {
+            shards.add(Database.openShard(uri, slowQueryLog));
+        }
+        ShardedDatabase database = new ShardedDatabase(shards, new IdAllocator(catalogUri, 1000));
+        if (recorded != uris.size()) {
+            database.moveRows(recorded);
+            ShardLayout.record(catalogUri, uris.size());
+        }
+        return database;
+    }
+
+    public int size() {
+        return shards.size();
+    }
+
+    public Database shard(int index) {
+        return shards.get(index);
+    }
+
+    public List<Database> shards() {
+        return shards;
+    }
+
+    public ShardRouter getRouter() {
+        return router;
+    }
+
+    // assigns ids to new employers (when sharded) and inserts them, one transaction per shard
+    public void createEmployers(Collection<Employer> employers) throws SQLException {
+        Map<Integer, List<Employer>> byShard = new TreeMap<>();
+        for (Employer employer : employers) {
+            if (ids != null) {
+                employer.setId(ids.next("employers"));
+            }
+            byShard.computeIfAbsent(ids == null ? 0 : router.shardFor(employer.getId()), k -> new ArrayList<>())
+                    .add(employer);
+        }
+        onShards(byShard, (shard, rows) -> insert(shard.getEmployerDao(), rows));
+    }
+
+    // assigns ids to new jobs (when sharded) and inserts them next to their employer, one
+    // transaction per shard; batches spanning many employers are written to the shards in parallel
+    public void createJobs(Collection<Job> jobs) throws SQLException {
+        Map<Integer, List<Job>> byShard = new TreeMap<>();
+        for (Job job : jobs) {
+            if (ids != null) {
+                job.setId(ids.next("jobs"));
+            }
+            byShard.computeIfAbsent(router.shardFor(job.getEmployer()), k -> new ArrayList<>()).add(job);
+        }
+        onShards(byShard, (shard, rows) -> insert(shard.getJobDao(), rows));
+    }
+
+    // employers with an id above afterId in id order, at most limit of them (0: all)
+    public List<Employer> listEmployers(long afterId, long limit) throws SQLException {
+        List<List<Employer>> pages = scatter(shard -> {
+            Dao<Employer, Integer> dao = shard.getEmployerDao();
+            if (afterId <= 0 && limit <= 0) {
+                return dao.queryForAll();
+            }
+            return dao.queryBuilder()
+                    .orderBy("id", true)
+                    .limit(limit > 0 ? limit : null)
+                    .where().gt("id", afterId)
+                    .query();
+        });
+        return mergeById(pages, Employer::getId, limit);
+    }
+
+    // jobs matching the filter with an id above afterId in id order, at most limit of them (0: all),
+    // as compact JobRows: an unpaged listing holds the whole table in memory
+    public List<JobRow> listJobs(JobFilter filter, long afterId, long limit) throws SQLException {
+        return mergeById(scatter(shard -> filter.rows(shard.getJobDao(), afterId, limit, dictionary)),
+                JobRow::getId, limit);
+    }
+
+    // employers by id, in the requested order; only the shards owning the ids are queried
+    public List<Employer> employersByIds(List<Integer> employerIds) throws SQLException {
+        if (executor == null) {
+            return BatchLoader.loadByIds(shards.get(0).getEmployerDao(), employerIds, Employer::getId);
+        }
+        Map<Integer, List<Integer>> byShard = new TreeMap<>();
+        for (Integer id : employerIds) {
+            byShard.computeIfAbsent(router.shardFor(id), k -> new ArrayList<>()).add(id);
+        }
+        List<List<Employer>> found = onShards(byShard,
+                (shard, shardIds) -> BatchLoader.loadByIds(shard.getEmployerDao(), shardIds, Employer::getId));
+        return inRequestOrder(found, employerIds, Employer::getId);
+    }
+
+    // jobs by id, in the requested order; a job id says nothing about its shard, so all are asked
+    public List<Job> jobsByIds(List<Integer> jobIds) throws SQLException {
+        if (executor == null) {
+            return BatchLoader.loadByIds(shards.get(0).getJobDao(), jobIds, Job::getId);
+        }
+        List<List<Job>> found = scatter(shard -> BatchLoader.loadByIds(shard.getJobDao(), jobIds, Job::getId));
+        return inRequestOrder(found, jobIds, Job::getId);
+    }
+
+    // changes whenever a job is inserted, updated or deleted in any shard: the sum of the shards'
+    // "jobs" entries in table_versions, each of which only grows
+    public long jobsVersion() throws SQLException {
+        long version = 0;
+        for (Database shard : shards) {
+            version += TableVersions.current(shard.getJobDao(), "jobs");
+        }
+        return version;
+    }
+
+    // JobFacetIndex.counts over all shards: the per-shard counts added up
+    public Map<String, Map<String, Integer>> facetCounts(JobFilter filter, Collection<String> facets)
+            throws SQLException {
+        List<Map<String, Map<String, Integer>>> counts = new ArrayList<>();
+        for (JobFacetIndex index : facetIndexes) {
+            counts.add(index.counts(filter, facets));
+        }
+        if (counts.size() == 1) {
+            return counts.get(0);
+        }
+        Map<String, Map<String, Integer>> total = new LinkedHashMap<>();
+        for (Map<String, Map<String, Integer>> shardCounts : counts) {
+            for (Map.Entry<String, Map<String, Integer>> facet : shardCounts.entrySet()) {
+                Map<String, Integer> values = total.computeIfAbsent(facet.getKey(), k -> new LinkedHashMap<>());
+                facet.getValue().forEach((value, count) -> values.merge(value, count, Integer::sum));
+            }
+        }
+        return total;
+    }
+
+    private interface ShardQuery<R> {
+        R run(Database shard) throws Exception;
+    }
+
+    private interface ShardTask<A, R> {
+        R run(Database shard, A argument) throws Exception;
+    }
+
+    private <R> List<R> scatter(ShardQuery<R> query) throws SQLException {
+        Map<Integer, Void> all = new TreeMap<>();
+        for (int i = 0; i < shards.size(); i++) {
+            all.put(i, null);
+        }
+        return onShards(all, (shard, unused) -> query.run(shard));
+    }
+
+    // runs task on each listed shard, in parallel when there is more than one, and returns the
+    // results in shard order
+    private <A, R> List<R> onShards(Map<Integer, A> arguments, ShardTask<A, R> task) throws SQLException {
+        List<R> results = new ArrayList<>(arguments.size());
+        try {
+            if (executor == null || arguments.size() == 1) {
+                for (Map.Entry<Integer, A> entry : arguments.entrySet()) {
+                    results.add(task.run(shards.get(entry.getKey()), entry.getValue()));
+                }
+                return results;
+            }
+            List<Future<R>> futures = new ArrayList<>(arguments.size());
+            for (Map.Entry<Integer, A> entry : arguments.entrySet()) {
+                Database shard = shards.get(entry.getKey());
+                Callable<R> call = () -> task.run(shard, entry.getValue());
+                futures.add(executor.submit(call));
+            }
+            for (Future<R> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (ExecutionException e) {
+            throw rethrow(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the shards", e);
+        } catch (Exception e) {
+            throw rethrow(e);
+        }
+    }
+
+    private static SQLException rethrow(Throwable cause) {
+        if (cause instanceof SQLException) {
+            return (SQLException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        return new SQLException(cause);
+    }
+
+    // moves every employer of the first oldShards shards that the ring now routes to another shard,
+    // with its jobs. Rows are written to the new shard before they are deleted from the old one, so
+    // an interrupted move is finished by running it again.
+    private void moveRows(int oldShards) throws SQLException {
+        for (int from = 0; from < oldShards; from++) {
+            Database source = shards.get(from);
+            for (Employer employer : source.getEmployerDao().queryForAll()) {
+                int to = router.shardFor(employer.getId());
+                if (to == from) {
+                    continue;
+                }
+                Database target = shards.get(to);
+                List<Job> jobs = source.getJobDao().queryForEq("employerId", employer.getId());
+                try {
+                    target.getEmployerDao().callBatchTasks(() -> {
+                        target.getEmployerDao().createOrUpdate(employer);
+                        for (Job job : jobs) {
+                            target.getJobDao().createOrUpdate(job);
+                        }
+                        return null;
+                    });
+                    source.getEmployerDao().callBatchTasks(() -> {
+                        if (!jobs.isEmpty()) {
+                            source.getJobDao().delete(jobs);
+                        }
+                        source.getEmployerDao().delete(employer);
+                        return null;
+                    });
+                } catch (Exception e) {
+                    throw rethrow(e);
+                }
+            }
+        }
+    }
+
+    private static <T> Void insert(Dao<T, Integer> dao, List<T> rows) throws Exception {
+        return dao.callBatchTasks(() -> {
+            for (T row : rows) {
+                dao.create(row);
+            }
+            return null;
+        });
+    }
+
+    // k-way merge of per-shard lists sorted by id, stopping after limit rows (0: no limit)
+    static <T> List<T> mergeById(List<List<T>> lists, ToIntFunction<T> idOf, long limit) {
+        if (lists.size() == 1) {
+            return lists.get(0);
+        }
+        Comparator<T> byId = Comparator.comparingInt(idOf);
+        int total = 0;
+        for (List<T> list : lists) {
+            // unpaged queries come back in table order, which SQLite does not promise is id order
+            list.sort(byId);
+            total += list.size();
+        }
+        int size = limit > 0 ? (int) Math.min(limit, total) : total;
+        // heads of the lists as {list, position}
+        PriorityQueue<int[]> heads = new PriorityQueue<>(lists.size(),
+                (a, b) -> byId.compare(lists.get(a[0]).get(a[1]), lists.get(b[0]).get(b[1])));
+        for (int i = 0; i < lists.size(); i++) {
+            if (!lists.get(i).isEmpty()) {
+                heads.add(new int[]{i, 0});
+            }
+        }
+        List<T> merged = new ArrayList<>(size);
+        while (merged.size() < size) {
+            int[] head = heads.poll();
+            List<T> list = lists.get(head[0]);
+            merged.add(list.get(head[1]));
+            if (++head[1] < list.size()) {
+                heads.add(head);
+            }
+        }
+        return merged;
+    }
+
+    private static <T> List<T> inRequestOrder(List<List<T>> found, List<Integer> requested, ToIntFunction<T> idOf) {
+        Map<Integer, T> byId = new HashMap<>();
+        for (List<T> rows : found) {
+            for (T row : rows) {
+                byId.put(idOf.applyAsInt(row), row);
+            }
+        }
+        List<T> result = new ArrayList<>(requested.size());
+        for (Integer id : requested) {
+            T row = byId.get(id);
+            if (row != null) {
+                result.add(row);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void close() throws IOException, SQLException {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        for (Database shard : shards) {
+            shard.close();
+        }
+        if (ids != null) {
+            ids.close();
+        }
+    }
+}
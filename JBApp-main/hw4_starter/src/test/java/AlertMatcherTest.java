@@ -0,0 +1,123 @@
+import com.j256.ormlite.table.TableUtils;
+import db.Database;
+import model.Employer;
+import model.Job;
+import model.JobAlert;
+import model.SavedSearch;
+import org.junit.jupiter.api.*;
+import search.AlertMatcher;
+import search.AlertWorker;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class AlertMatcherTest {
+
+    private static final Employer EMPLOYER = Fixtures.employer();
+
+    @Nested
+    class MatcherTest {
+
+        private final AlertMatcher matcher = AlertMatcher.build(Arrays.asList(
+                search(1, "tech", null, null, 0, null),
+                search(2, "tech", "NYC", true, 0, null),
+                search(3, null, null, null, 120000, null),
+                search(4, null, null, null, 0, "java sql"),
+                search(5, "Food", "nyc", false, 0, "coffee")));
+
+        private Set<Integer> matches(Job job) {
+            return new HashSet<>(matcher.match(job));
+        }
+
+        // a search matches only when every one of its criteria holds
+        @Test
+        public void testAllCriteriaMustMatch() {
+            assertEquals(set(1, 2), matches(job("tech", "NYC", true, 100000, "Must be familiar with Java")));
+            assertEquals(set(1), matches(job("tech", "LA", true, 100000, "Must be familiar with Java")));
+        }
+
+        // a search with only a pay floor matches every job paying at least that much
+        @Test
+        public void testPayFloor() {
+            assertEquals(set(3, 1), matches(job("tech", "LA", false, 130000, "")));
+            assertEquals(set(), matches(job("retail", "LA", false, 119999, "")));
+        }
+
+        // every keyword must appear as a word in the requirements; domain/location ignore case
+        @Test
+        public void testKeywordsAndCase() {
+            assertEquals(set(4), matches(job("finance", "SF", true, 90000, "Java, SQL and Python")));
+            assertEquals(set(), matches(job("finance", "SF", true, 90000, "JavaScript and SQL")));
+            assertEquals(set(5), matches(job("food", "NYC", false, 15, "Makes coffee")));
+        }
+    }
+
+    @Nested
+    @TestInstance(TestInstance.Lifecycle.PER_CLASS)
+    class WorkerTest {
+
+        // a separate database, so that the alert worker of a running server does not consume
+        // the jobs inserted here
+        private final String URI = "jdbc:sqlite:./build/AlertMatcherTest.db";
+        private Database database;
+
+        @BeforeAll
+        public void setUpAll() throws SQLException {
+            database = Database.open(URI);
+        }
+
+        @AfterAll
+        public void tearDownAll() throws IOException {
+            database.close();
+        }
+
+        @BeforeEach
+        public void setUpEach() throws SQLException {
+            TableUtils.clearTable(database.getConnectionSource(), Job.class);
+            TableUtils.clearTable(database.getConnectionSource(), SavedSearch.class);
+            TableUtils.clearTable(database.getConnectionSource(), JobAlert.class);
+        }
+
+        // jobs inserted after the worker starts are matched once and written to the outbox
+        @Test
+        public void testNewJobsWrittenToOutbox() throws SQLException {
+            database.getJobDao().create(job("tech", "NYC", true, 100000, "Java"));
+            AlertWorker worker = new AlertWorker(database, 1000);
+            worker.processPending();
+            SavedSearch search = search(0, "tech", null, null, 0, null);
+            database.getSavedSearchDao().create(search);
+
+            Job j1 = job("tech", "SF", true, 110000, "Java");
+            Job j2 = job("food", "SF", true, 20, "Coffee");
+            database.getJobDao().create(Arrays.asList(j1, j2));
+            assertEquals(2, worker.processPending());
+            assertEquals(0, worker.processPending());
+
+            List<JobAlert> alerts = database.getJobAlertDao().queryForAll();
+            assertEquals(1, alerts.size());
+            assertEquals(search.getId(), alerts.get(0).getSavedSearchId());
+            assertEquals(j1.getId(), alerts.get(0).getJobId());
+            worker.close();
+        }
+    }
+
+    private static Set<Integer> set(Integer... ids) {
+        return new HashSet<>(Arrays.asList(ids));
+    }
+
+    private static Job job(String domain, String location, boolean fullTime, int pay, String requirements) {
+        return Fixtures.job(EMPLOYER, domain, location, fullTime, pay, requirements);
+    }
+
+    private static SavedSearch search(int id, String domain, String location, Boolean fullTime, int minPay, String keywords) {
+        SavedSearch search = new SavedSearch("user" + id + "@example.com", domain, location, fullTime, minPay, keywords);
+        search.setId(id);
+        return search;
+    }
+}
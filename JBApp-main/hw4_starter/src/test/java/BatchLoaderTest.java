@@ -0,0 +1,85 @@
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.table.TableUtils;
+import db.BatchLoader;
+import db.Database;
+import model.Employer;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class BatchLoaderTest {
+
+    // a database of its own under build/, not the committed JBApp.db
+    private final String URI = "jdbc:sqlite:./build/BatchLoaderTest.db";
+
+    private Database database;
+    private Dao<Employer, Integer> dao;
+    private final List<Integer> ids = new ArrayList<>();
+
+    @BeforeAll
+    public void setUpAll() throws SQLException {
+        database = Database.open(URI);
+        dao = database.getEmployerDao();
+    }
+
+    @AfterAll
+    public void tearDownAll() throws IOException {
+        database.close();
+    }
+
+    @BeforeEach
+    public void setUpEach() throws SQLException {
+        TableUtils.clearTable(database.getConnectionSource(), Employer.class);
+        ids.clear();
+        for (String name : new String[]{"Salesforce", "Sonos", "Fedex", "First Solar", "Kraft Heinz"}) {
+            Employer e = new Employer(name, "Sector", "Summary");
+            dao.create(e);
+            ids.add(e.getId());
+        }
+    }
+
+    // rows come back in the requested order, and unknown ids are skipped
+    @Test
+    public void testRequestedOrder() throws SQLException {
+        List<Integer> requested = Arrays.asList(ids.get(3), ids.get(0), -1, ids.get(2));
+        List<Employer> ls = BatchLoader.loadByIds(dao, requested, Employer::getId);
+        assertEquals(3, ls.size());
+        assertEquals("First Solar", ls.get(0).getName());
+        assertEquals("Salesforce", ls.get(1).getName());
+        assertEquals("Fedex", ls.get(2).getName());
+    }
+
+    // ids split across several IN queries still come back complete and in order
+    @Test
+    public void testChunks() throws SQLException {
+        List<Integer> requested = new ArrayList<>(ids);
+        Collections.reverse(requested);
+        List<Employer> ls = BatchLoader.loadByIds(dao, requested, Employer::getId, 2);
+        assertEquals(5, ls.size());
+        for (int i = 0; i < ls.size(); i++) {
+            assertEquals(requested.get(i), ls.get(i).getId());
+        }
+    }
+
+    @Test
+    public void testParseIds() {
+        assertEquals(Arrays.asList(3, 1, 2), BatchLoader.parseIds("3, 1,2,"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> BatchLoader.parseIds("1,two"));
+    }
+
+    // a JSON body like [1, null] is rejected before a null id reaches a query or the shard router
+    @Test
+    public void testNullIdsRejected() {
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> BatchLoader.checkIds(Arrays.asList(1, null)));
+        assertEquals(Arrays.asList(1, 2), BatchLoader.checkIds(Arrays.asList(1, 2)));
+    }
+}
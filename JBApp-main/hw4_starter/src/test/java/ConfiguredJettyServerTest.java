@@ -0,0 +1,67 @@
+import config.AppConfig;
+import org.eclipse.jetty.server.ForwardedRequestCustomizer;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.junit.jupiter.api.Test;
+import server.ConfiguredJettyServer;
+
+import java.util.Arrays;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConfiguredJettyServerTest {
+
+    // the connector picks up port, protocols, keep-alive, timeouts and buffer sizes from the config
+    @Test
+    public void testConnectorFromConfig() {
+        Properties props = new Properties();
+        props.setProperty("server.port", "7100");
+        props.setProperty("server.http2", "true");
+        props.setProperty("server.keepAlive", "false");
+        props.setProperty("server.idleTimeoutMs", "5000");
+        props.setProperty("server.outputBufferSize", "65536");
+        props.setProperty("server.threads.max", "50");
+        Server server = new ConfiguredJettyServer(new AppConfig(props)).create(-1, -1, -1);
+
+        assertEquals(1, server.getConnectors().length);
+        ServerConnector connector = (ServerConnector) server.getConnectors()[0];
+        assertEquals(7100, connector.getPort());
+        assertEquals(5000, connector.getIdleTimeout());
+        assertEquals(Arrays.asList("http/1.1", "h2c"), connector.getProtocols());
+        HttpConnectionFactory http = connector.getConnectionFactory(HttpConnectionFactory.class);
+        assertFalse(http.getHttpConfiguration().isPersistentConnectionsEnabled());
+        assertEquals(65536, http.getHttpConfiguration().getOutputBufferSize());
+        assertEquals(50, ((QueuedThreadPool) server.getThreadPool()).getMaxThreads());
+    }
+
+    // with an empty config the connector is plain HTTP/1.1 with keep-alive on port 7000
+    @Test
+    public void testDefaults() {
+        Server server = new ConfiguredJettyServer(new AppConfig(new Properties())).create(-1, -1, -1);
+        ServerConnector connector = (ServerConnector) server.getConnectors()[0];
+        assertEquals(7000, connector.getPort());
+        assertEquals(Arrays.asList("http/1.1"), connector.getProtocols());
+        assertTrue(connector.getConnectionFactory(HttpConnectionFactory.class)
+                .getHttpConfiguration().isPersistentConnectionsEnabled());
+        assertNotNull(connector.getConnectionFactory(HttpConnectionFactory.class)
+                .getHttpConfiguration().getCustomizer(ForwardedRequestCustomizer.class));
+    }
+
+    // forwarded headers are only trusted while server.trustForwardHeaders is on
+    @Test
+    public void testForwardHeadersCanBeIgnored() {
+        Properties props = new Properties();
+        props.setProperty("server.trustForwardHeaders", "false");
+        Server server = new ConfiguredJettyServer(new AppConfig(props)).create(-1, -1, -1);
+        ServerConnector connector = (ServerConnector) server.getConnectors()[0];
+        assertNull(connector.getConnectionFactory(HttpConnectionFactory.class)
+                .getHttpConfiguration().getCustomizer(ForwardedRequestCustomizer.class));
+    }
+}
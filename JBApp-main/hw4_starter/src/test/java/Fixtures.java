@@ -0,0 +1,35 @@
+import model.Employer;
+import model.Job;
+
+import java.sql.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Rows for tests that need a valid employer or job but only care about a few of its fields.
+// Generated titles are unique, also across runs against ./JBApp.db, since jobs.title is.
+final class Fixtures {
+
+    static final Date POSTED = Date.valueOf("2021-07-02");
+    static final Date DEADLINE = Date.valueOf("2022-01-01");
+
+    private static final AtomicInteger TITLES = new AtomicInteger();
+
+    private Fixtures() {
+    }
+
+    // Salesforce with a fixed id; jobs only store the employer id, nothing checks it exists
+    static Employer employer() {
+        Employer e = new Employer("Salesforce", "Tech", "An American cloud-based software company!");
+        e.setId(2);
+        return e;
+    }
+
+    static Job job(Employer employer, String domain, String location, boolean fullTime, int pay, String requirements) {
+        return job("Job " + TITLES.incrementAndGet() + " " + System.nanoTime(), employer, domain, location,
+                fullTime, pay, requirements);
+    }
+
+    static Job job(String title, Employer employer, String domain, String location, boolean fullTime, int pay,
+                   String requirements) {
+        return new Job(title, POSTED, DEADLINE, domain, location, fullTime, true, requirements, pay, employer);
+    }
+}
@@ -0,0 +1,159 @@
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.stmt.DeleteBuilder;
+import com.j256.ormlite.table.TableUtils;
+import db.Database;
+import model.Employer;
+import model.Job;
+import org.junit.jupiter.api.*;
+import search.JobFacetIndex;
+import search.JobFilter;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class JobFacetIndexTest {
+
+    // a database of its own under build/, so the change-log table and triggers the index installs
+    // stay out of the committed JBApp.db
+    private final String URI = "jdbc:sqlite:./build/JobFacetIndexTest.db";
+
+    private Database database;
+    private Dao<Job, Integer> dao;
+    private JobFacetIndex index;
+    private Employer employer;
+
+    @BeforeAll
+    public void setUpAll() throws SQLException {
+        database = Database.open(URI);
+        dao = database.getJobDao();
+        index = new JobFacetIndex(dao);
+        employer = Fixtures.employer();
+    }
+
+    @AfterAll
+    public void tearDownAll() throws IOException {
+        database.close();
+    }
+
+    @BeforeEach
+    public void setUpEach() throws SQLException {
+        TableUtils.clearTable(database.getConnectionSource(), Job.class);
+        dao.create(Arrays.asList(
+                Fixtures.job("SWE", employer, "tech", "NYC", true, 100000, "Java"),
+                Fixtures.job("SDE", employer, "tech", "Chicago", true, 160000, "Java"),
+                Fixtures.job("Barista", employer, "food", "NYC", false, 15, "Coffee")));
+    }
+
+    // with no filter, each facet value is counted over all jobs
+    @Test
+    public void testCountsWithoutFilter() throws SQLException {
+        Map<String, Map<String, Integer>> counts = index.counts(filter(Collections.emptyMap()), JobFacetIndex.FACETS);
+        assertEquals(2, counts.get("domain").get("tech"));
+        assertEquals(1, counts.get("domain").get("food"));
+        assertEquals(2, counts.get("location").get("NYC"));
+        assertEquals(1, counts.get("fullTime").get("false"));
+        assertEquals(1, counts.get("pay").get("150000+"));
+        assertEquals(1, counts.get("pay").get("0-49999"));
+    }
+
+    // counts are restricted to the jobs matching the filter, and values with no match are left out
+    @Test
+    public void testCountsWithFilter() throws SQLException {
+        Map<String, String> values = new HashMap<>();
+        values.put("location", "NYC");
+        values.put("fullTime", "true");
+        Map<String, Map<String, Integer>> counts = index.counts(filter(values), Arrays.asList("domain", "pay"));
+        assertEquals(Collections.singletonMap("tech", 1), counts.get("domain"));
+        assertEquals(Collections.singletonMap("100000-149999", 1), counts.get("pay"));
+        assertEquals(1, filter(values).query(dao).size());
+    }
+
+    // a write to the jobs table is picked up by the next request without rebuilding by hand
+    @Test
+    public void testCountsFollowInserts() throws SQLException {
+        assertEquals(2, index.counts(filter(Collections.emptyMap()), Collections.singletonList("domain")).get("domain").get("tech"));
+        dao.create(Fixtures.job("PM", employer, "tech", "SF", true, 90000, "Java"));
+        assertEquals(3, index.counts(filter(Collections.emptyMap()), Collections.singletonList("domain")).get("domain").get("tech"));
+    }
+
+    // updates and deletes move a job's counts without a rebuild
+    @Test
+    public void testCountsFollowUpdatesAndDeletes() throws SQLException {
+        Map<String, Map<String, Integer>> before = index.counts(filter(Collections.emptyMap()), JobFacetIndex.FACETS);
+        assertEquals(1, before.get("domain").get("food"));
+        Job barista = dao.queryForEq("title", "Barista").get(0);
+        barista.setDomain("tech");
+        barista.setPayAmount(60000);
+        dao.update(barista);
+        Map<String, Map<String, Integer>> updated = index.counts(filter(Collections.emptyMap()), JobFacetIndex.FACETS);
+        assertEquals(3, updated.get("domain").get("tech"));
+        assertNull(updated.get("domain").get("food"));
+        assertEquals(1, updated.get("pay").get("50000-99999"));
+
+        dao.delete(dao.queryForEq("title", "SDE"));
+        Map<String, String> values = new HashMap<>();
+        values.put("domain", "tech");
+        Map<String, Map<String, Integer>> deleted = index.counts(filter(values), Arrays.asList("location", "pay"));
+        assertEquals(Collections.singletonMap("NYC", 2), deleted.get("location"));
+        assertNull(deleted.get("pay").get("150000+"));
+    }
+
+    // a value held by every job next to values held by one job each, across several thousand rows
+    @Test
+    public void testHighCardinalityValues() throws Exception {
+        int count = 6000;
+        dao.callBatchTasks(() -> {
+            for (int i = 0; i < count; i++) {
+                dao.create(Fixtures.job("Job " + i, employer, "bulk", "City " + i, i % 2 == 0, i, "Java"));
+            }
+            return null;
+        });
+        Map<String, Map<String, Integer>> counts = index.counts(filter(Collections.emptyMap()), JobFacetIndex.FACETS);
+        assertEquals(count, counts.get("domain").get("bulk"));
+        assertEquals(count + 2, counts.get("location").size());
+        Map<String, String> values = new HashMap<>();
+        values.put("location", "City 4242");
+        values.put("fullTime", "true");
+        assertEquals(Collections.singletonMap("bulk", 1),
+                index.counts(filter(values), Collections.singletonList("domain")).get("domain"));
+
+        DeleteBuilder<Job, Integer> delete = dao.deleteBuilder();
+        delete.where().eq("domain", "bulk").and().gt("payAmount", 999);
+        delete.delete();
+        counts = index.counts(filter(Collections.emptyMap()), JobFacetIndex.FACETS);
+        assertEquals(1000, counts.get("domain").get("bulk"));
+        assertNull(counts.get("location").get("City 4242"));
+        values.put("location", "City 42");
+        assertEquals(Collections.singletonMap("bulk", 1),
+                index.counts(filter(values), Collections.singletonList("domain")).get("domain"));
+    }
+
+    // a boolean filter value other than true/false is rejected instead of matching the false rows
+    @Test
+    public void testInvalidBooleanRejected() {
+        for (String value : new String[]{"yes", "1", ""}) {
+            Assertions.assertThrows(IllegalArgumentException.class,
+                    () -> filter(Collections.singletonMap("fullTime", value)));
+        }
+        JobFilter upper = filter(Collections.singletonMap("salaryBased", "FALSE"));
+        assertEquals(Collections.singletonMap("salaryBased", "false"), upper.getValues());
+    }
+
+    @Test
+    public void testUnknownFacet() {
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> index.counts(filter(Collections.emptyMap()), Collections.singletonList("title")));
+    }
+
+    private static JobFilter filter(Map<String, String> values) {
+        return new JobFilter(values);
+    }
+}
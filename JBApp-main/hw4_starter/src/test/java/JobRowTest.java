@@ -0,0 +1,94 @@
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import model.Employer;
+import model.Job;
+import model.JobRow;
+import model.StringDictionary;
+import org.junit.jupiter.api.Test;
+import server.JobRowAdapter;
+
+import java.util.Collections;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class JobRowTest {
+
+    private final Employer employer = Fixtures.employer();
+
+    // rows built through one dictionary share their domain/location strings; free-text
+    // requirements are not added to it
+    @Test
+    public void testDictionarySharesStrings() {
+        StringDictionary dictionary = new StringDictionary(100);
+        Job j1 = job(1, "SWE", new String("tech"), new String("NYC"));
+        JobRow r1 = JobRow.from(j1, dictionary);
+        JobRow r2 = JobRow.from(job(2, "SDE", new String("tech"), new String("NYC")), dictionary);
+        assertSame(r1.getDomain(), r2.getDomain());
+        assertSame(r1.getLocation(), r2.getLocation());
+        assertSame(j1.getRequirements(), r1.getRequirements());
+        assertEquals(2, dictionary.size());
+    }
+
+    // a full dictionary hands new values back unshared instead of growing
+    @Test
+    public void testDictionaryBounded() {
+        StringDictionary dictionary = new StringDictionary(2);
+        String a = dictionary.intern(new String("a"));
+        dictionary.intern("b");
+        String c = new String("c");
+        assertSame(c, dictionary.intern(c));
+        assertEquals(2, dictionary.size());
+        assertSame(a, dictionary.intern(new String("a")));
+    }
+
+    // converting to a JobRow and back keeps every persisted field
+    @Test
+    public void testRoundTrip() {
+        Job job = job(7, "SWE", "tech", "NYC");
+        JobRow row = JobRow.from(job, new StringDictionary(100));
+        Job back = row.toJob();
+        assertEquals(job.getId(), back.getId());
+        assertEquals(job.getTitle(), back.getTitle());
+        assertEquals(job.getDatePosted().getTime(), back.getDatePosted().getTime());
+        assertEquals(job.getDeadline().getTime(), back.getDeadline().getTime());
+        assertEquals(job.getDomain(), back.getDomain());
+        assertEquals(job.getLocation(), back.getLocation());
+        assertEquals(job.getPayAmount(), back.getPayAmount());
+        assertEquals(job.getEmployer(), back.getEmployer());
+        assertEquals(row, JobRow.from(back, new StringDictionary(100)));
+    }
+
+    // /jobs serializes JobRows; the JSON must be what the Job read from the database gave
+    @Test
+    public void testJsonSameAsJob() {
+        Job job = job(7, "SWE", "tech", "NYC");
+        // as ORMLite reads a job: java.util.Date columns and no Employer object
+        job.setDatePosted(new Date(job.getDatePosted().getTime()));
+        job.setDeadline(new Date(job.getDeadline().getTime()));
+        job.setEmployer(null);
+        Gson gson = new GsonBuilder().registerTypeAdapterFactory(new JobRowAdapter()).create();
+        assertEquals(gson.toJson(job), gson.toJson(JobRow.from(job, new StringDictionary(100))));
+        assertEquals(gson.toJson(Collections.singletonList(job)),
+                gson.toJson(Collections.singletonList(JobRow.from(job, new StringDictionary(100)))));
+    }
+
+    @Test
+    public void testEqualsAndHashCode() {
+        JobRow r1 = JobRow.from(job(1, "SWE", "tech", "NYC"), new StringDictionary(100));
+        JobRow r2 = JobRow.from(job(1, "SWE", "tech", "NYC"), new StringDictionary(100));
+        JobRow r3 = JobRow.from(job(1, "SWE", "tech", "LA"), new StringDictionary(100));
+        assertEquals(r1, r2);
+        assertEquals(r1.hashCode(), r2.hashCode());
+        assertNotEquals(r1, r3);
+    }
+
+    // a new requirements String each time, so only the dictionary can make two rows share it
+    private Job job(int id, String title, String domain, String location) {
+        Job job = Fixtures.job(title, employer, domain, location, true, 100000, new String("Must be familiar with Java"));
+        job.setId(id);
+        return job;
+    }
+}
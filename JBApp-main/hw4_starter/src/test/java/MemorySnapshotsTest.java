@@ -0,0 +1,91 @@
+import db.Database;
+import db.MemorySnapshots;
+import model.Employer;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MemorySnapshotsTest {
+
+    // a snapshot file of its own under build/, not the server's JBApp.db
+    private final Path FILE = Paths.get("build", "MemorySnapshotsTest.db");
+
+    @BeforeEach
+    public void setUpEach() throws IOException {
+        Files.createDirectories(FILE.getParent());
+        Files.deleteIfExists(FILE);
+    }
+
+    // rows written in memory survive a snapshot and are loaded again by the next instance
+    @Test
+    public void testSnapshotRestoredOnStartup() throws SQLException, IOException {
+        MemorySnapshots snapshots = new MemorySnapshots("MemorySnapshotsTest-1", FILE);
+        Database database = Database.open(snapshots.getUri());
+        snapshots.start(60000, 1000);
+        database.getEmployerDao().create(new Employer("Sonos", "Tech", "Speakers"));
+        assertFalse(Files.exists(FILE));
+        snapshots.close();
+        database.close();
+        assertTrue(Files.exists(FILE));
+
+        MemorySnapshots restored = new MemorySnapshots("MemorySnapshotsTest-2", FILE);
+        Database reopened = Database.open(restored.getUri());
+        assertEquals("Sonos", reopened.getEmployerDao().queryForAll().get(0).getName());
+        restored.close();
+        reopened.close();
+    }
+
+    // the path is quoted for sqlite-jdbc, so a directory with a space in its name works
+    @Test
+    public void testPathWithSpace() throws SQLException, IOException {
+        Path file = Paths.get("build", "snapshot dir", "MemorySnapshotsTest.db");
+        Files.createDirectories(file.getParent());
+        Files.deleteIfExists(file);
+        MemorySnapshots snapshots = new MemorySnapshots("MemorySnapshotsTest-4", file);
+        Database database = Database.open(snapshots.getUri());
+        database.getEmployerDao().create(new Employer("Sonos", "Tech", "Speakers"));
+        snapshots.close();
+        database.close();
+        assertTrue(Files.exists(file));
+
+        MemorySnapshots restored = new MemorySnapshots("MemorySnapshotsTest-5", file);
+        Database reopened = Database.open(restored.getUri());
+        assertEquals("Sonos", reopened.getEmployerDao().queryForAll().get(0).getName());
+        restored.close();
+        reopened.close();
+    }
+
+    @Test
+    public void testPathWithQuoteRejected() {
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new MemorySnapshots("MemorySnapshotsTest-6", Paths.get("build", "a\"b.db")));
+    }
+
+    // a snapshot is due after writesPerSnapshot changed rows, or after the interval with any change
+    @Test
+    public void testSnapshotIfDue() throws SQLException, IOException {
+        MemorySnapshots snapshots = new MemorySnapshots("MemorySnapshotsTest-3", FILE);
+        Database database = Database.open(snapshots.getUri());
+        snapshots.start(60000, 2);
+        assertFalse(snapshots.snapshotIfDue(60000, 2));
+        database.getEmployerDao().create(new Employer("Sonos", "Tech", "Speakers"));
+        assertFalse(snapshots.snapshotIfDue(60000, 2));
+        database.getEmployerDao().create(new Employer("Spotify", "Tech", "Music"));
+        assertTrue(snapshots.snapshotIfDue(60000, 2));
+        assertEquals(0L, snapshots.stats().get("unsavedWrites"));
+
+        database.getEmployerDao().create(new Employer("Stripe", "Finance", "Payments"));
+        assertTrue(snapshots.snapshotIfDue(0, 2));
+        assertEquals(2L, snapshots.stats().get("snapshots"));
+        snapshots.close();
+        database.close();
+    }
+}
@@ -0,0 +1,89 @@
+import org.junit.jupiter.api.Test;
+import search.JobFilter;
+import server.OffHeapResponseCache;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OffHeapResponseCacheTest {
+
+    // bodies are stored off-heap and every get() gets a buffer of its own to consume
+    @Test
+    public void testStoredOffHeap() {
+        OffHeapResponseCache cache = new OffHeapResponseCache(1000);
+        ByteBuffer stored = cache.put("jobs", 1, bytes("[{\"id\":1}]"));
+        assertTrue(stored.isDirect());
+        ByteBuffer first = cache.get("jobs", 1);
+        assertEquals("[{\"id\":1}]", text(first));
+        assertEquals(0, first.remaining());
+        assertEquals("[{\"id\":1}]", text(cache.get("jobs", 1)));
+    }
+
+    // an entry built from another version of the jobs table is a miss and is dropped
+    @Test
+    public void testOtherVersionMisses() {
+        OffHeapResponseCache cache = new OffHeapResponseCache(1000);
+        cache.put("jobs", 1, bytes("[]"));
+        assertNull(cache.get("jobs", 2));
+        assertNull(cache.get("jobs", 1));
+        assertEquals(0L, cache.snapshot().get("bytes"));
+    }
+
+    // once over budget the least recently used entries go first
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        OffHeapResponseCache cache = new OffHeapResponseCache(30);
+        cache.put("a", 1, new byte[10]);
+        cache.put("b", 1, new byte[10]);
+        cache.put("c", 1, new byte[10]);
+        cache.get("a", 1);
+        cache.put("d", 1, new byte[10]);
+        assertNull(cache.get("b", 1));
+        assertEquals(10, cache.get("a", 1).remaining());
+        assertEquals(10, cache.get("c", 1).remaining());
+        assertEquals(10, cache.get("d", 1).remaining());
+        assertEquals(30L, cache.snapshot().get("bytes"));
+        assertEquals(1L, cache.snapshot().get("evictions"));
+    }
+
+    // a body larger than the whole budget is not stored
+    @Test
+    public void testTooLargeNotStored() {
+        OffHeapResponseCache cache = new OffHeapResponseCache(30);
+        assertNull(cache.put("a", 1, new byte[31]));
+        assertNull(cache.get("a", 1));
+    }
+
+    // filters whose values contain ", " and "=" print the same but are different keys
+    @Test
+    public void testJobsKeyNotAmbiguous() {
+        Map<String, String> one = new LinkedHashMap<>();
+        one.put("domain", "tech, location=NYC");
+        Map<String, String> two = new LinkedHashMap<>();
+        two.put("domain", "tech");
+        two.put("location", "NYC");
+        assertEquals(one.toString(), two.toString());
+
+        OffHeapResponseCache cache = new OffHeapResponseCache(1000);
+        cache.put(OffHeapResponseCache.jobsKey(new JobFilter(one), 0, 0, null), 1, bytes("[\"one\"]"));
+        assertNull(cache.get(OffHeapResponseCache.jobsKey(new JobFilter(two), 0, 0, null), 1));
+        assertEquals("[\"one\"]", text(cache.get(OffHeapResponseCache.jobsKey(new JobFilter(one), 0, 0, null), 1)));
+        assertNull(cache.get(OffHeapResponseCache.jobsKey(new JobFilter(one), 0, 0, ""), 1));
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
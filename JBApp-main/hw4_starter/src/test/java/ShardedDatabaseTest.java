@@ -0,0 +1,210 @@
+import model.Employer;
+import model.Job;
+import model.JobRow;
+import org.junit.jupiter.api.*;
+import search.JobFilter;
+import shard.ShardRouter;
+import shard.ShardedDatabase;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ShardedDatabaseTest {
+
+    @Nested
+    class RouterTest {
+
+        // every shard gets a fair share of the keys
+        @Test
+        public void testKeysSpreadOverShards() {
+            ShardRouter router = new ShardRouter(4);
+            int[] counts = new int[4];
+            for (int id = 1; id <= 40000; id++) {
+                counts[router.shardFor(id)]++;
+            }
+            for (int count : counts) {
+                assertTrue(count > 7000 && count < 13000, Arrays.toString(counts));
+            }
+        }
+
+        // adding a shard only moves keys onto the new shard, about 1/5 of them for 4 -> 5
+        @Test
+        public void testAddingShardMovesFewKeys() {
+            ShardRouter four = new ShardRouter(4);
+            ShardRouter five = new ShardRouter(5);
+            int moved = 0;
+            for (int id = 1; id <= 40000; id++) {
+                if (four.shardFor(id) != five.shardFor(id)) {
+                    assertEquals(4, five.shardFor(id));
+                    moved++;
+                }
+            }
+            assertTrue(moved > 4000 && moved < 12000, "moved " + moved);
+        }
+    }
+
+    @Nested
+    @TestInstance(TestInstance.Lifecycle.PER_CLASS)
+    class ScatterGatherTest {
+
+        private ShardedDatabase database;
+
+        @BeforeAll
+        public void setUpAll() throws IOException, SQLException {
+            // fresh files under build/, so ids start from 1 and no server shares them
+            List<String> uris = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                uris.add("jdbc:sqlite:" + fresh("ShardedDatabaseTest-" + i + ".db"));
+            }
+            database = ShardedDatabase.open(uris, "jdbc:sqlite:" + fresh("ShardedDatabaseTest-catalog.db"), null);
+
+            List<Employer> employers = new ArrayList<>();
+            for (int e = 0; e < 12; e++) {
+                employers.add(new Employer("Employer " + e, e % 2 == 0 ? "Tech" : "Food", "Summary"));
+            }
+            database.createEmployers(employers);
+            List<Job> jobs = new ArrayList<>();
+            for (Employer employer : employers) {
+                for (int j = 0; j < 5; j++) {
+                    jobs.add(Fixtures.job(employer, j % 2 == 0 ? "tech" : "food", "NYC", true, 100000, "Java"));
+                }
+            }
+            database.createJobs(jobs);
+        }
+
+        @AfterAll
+        public void tearDownAll() throws IOException, SQLException {
+            database.close();
+        }
+
+        // an employer and all of its jobs are stored in the shard the router picks for it
+        @Test
+        public void testJobsStoredWithTheirEmployer() throws SQLException {
+            Set<Integer> used = new HashSet<>();
+            for (Employer employer : database.listEmployers(0, 0)) {
+                int shard = database.getRouter().shardFor(employer.getId());
+                used.add(shard);
+                assertEquals(employer, database.shard(shard).getEmployerDao().queryForId(employer.getId()));
+                assertEquals(5, database.shard(shard).getJobDao().queryForEq("employerId", employer.getId()).size());
+            }
+            assertTrue(used.size() > 1);
+        }
+
+        // pages merged from all shards cover every job exactly once, in id order
+        @Test
+        public void testPagesMergedInIdOrder() throws SQLException {
+            JobFilter all = new JobFilter(Collections.emptyMap());
+            List<Integer> paged = new ArrayList<>();
+            long afterId = 0;
+            List<JobRow> page;
+            while (!(page = database.listJobs(all, afterId, 7)).isEmpty()) {
+                assertTrue(page.size() <= 7);
+                for (JobRow job : page) {
+                    paged.add(job.getId());
+                }
+                afterId = page.get(page.size() - 1).getId();
+            }
+            List<Integer> expected = new ArrayList<>();
+            for (int id = 1; id <= 60; id++) {
+                expected.add(id);
+            }
+            assertEquals(expected, paged);
+            assertEquals(60, database.listJobs(all, 0, 0).size());
+        }
+
+        @Test
+        public void testFilterAndFacetsAcrossShards() throws SQLException {
+            JobFilter tech = new JobFilter(Collections.singletonMap("domain", "tech"));
+            assertEquals(36, database.listJobs(tech, 0, 0).size());
+            Map<String, Map<String, Integer>> counts = database.facetCounts(tech, Arrays.asList("domain", "fullTime"));
+            assertEquals(Collections.singletonMap("tech", 36), counts.get("domain"));
+            assertEquals(Collections.singletonMap("true", 36), counts.get("fullTime"));
+        }
+
+        // lookups by id come back in the requested order whichever shards hold the rows
+        @Test
+        public void testLookupByIds() throws SQLException {
+            List<Integer> ids = Arrays.asList(12, 1, 99, 7);
+            List<Integer> found = new ArrayList<>();
+            for (Employer employer : database.employersByIds(ids)) {
+                found.add(employer.getId());
+            }
+            assertEquals(Arrays.asList(12, 1, 7), found);
+            found.clear();
+            for (Job job : database.jobsByIds(Arrays.asList(60, 3, 31, 1000))) {
+                found.add(job.getId());
+            }
+            assertEquals(Arrays.asList(60, 3, 31), found);
+        }
+    }
+
+    @Nested
+    class ShardCountTest {
+
+        // the catalog remembers the shard count: another db.shards is refused, a larger one is
+        // accepted with rebalance, after which every employer and its jobs are where the new ring
+        // routes them
+        @Test
+        public void testShardCountRecordedAndRebalanced() throws IOException, SQLException {
+            List<String> uris = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                uris.add("jdbc:sqlite:" + fresh("ShardCountTest-" + i + ".db"));
+            }
+            String catalog = "jdbc:sqlite:" + fresh("ShardCountTest-catalog.db");
+            try (ShardedDatabase two = ShardedDatabase.open(uris.subList(0, 2), catalog, null)) {
+                List<Employer> employers = new ArrayList<>();
+                List<Job> jobs = new ArrayList<>();
+                for (int e = 0; e < 20; e++) {
+                    employers.add(new Employer("Employer " + e, "Tech", "Summary"));
+                }
+                two.createEmployers(employers);
+                for (Employer employer : employers) {
+                    jobs.add(Fixtures.job(employer, "tech", "NYC", true, 100000, "Java"));
+                    jobs.add(Fixtures.job(employer, "food", "NYC", true, 100000, "Java"));
+                }
+                two.createJobs(jobs);
+            }
+
+            Assertions.assertThrows(IllegalArgumentException.class,
+                    () -> ShardedDatabase.open(uris, catalog, null));
+            Assertions.assertThrows(IllegalArgumentException.class,
+                    () -> ShardedDatabase.open(uris.subList(0, 1), catalog, null, true));
+
+            try (ShardedDatabase three = ShardedDatabase.open(uris, catalog, null, true)) {
+                List<Employer> employers = three.listEmployers(0, 0);
+                assertEquals(20, employers.size());
+                assertEquals(40, three.listJobs(new JobFilter(Collections.emptyMap()), 0, 0).size());
+                Set<Integer> used = new HashSet<>();
+                for (Employer employer : employers) {
+                    int shard = three.getRouter().shardFor(employer.getId());
+                    used.add(shard);
+                    assertEquals(employer, three.shard(shard).getEmployerDao().queryForId(employer.getId()));
+                    assertEquals(2, three.shard(shard).getJobDao().queryForEq("employerId", employer.getId()).size());
+                }
+                assertTrue(used.contains(2));
+            }
+            // the new count is recorded: three shards now open without rebalance
+            ShardedDatabase.open(uris, catalog, null).close();
+        }
+    }
+
+    private static String fresh(String name) throws IOException {
+        Path path = Paths.get("build", name);
+        Files.createDirectories(path.getParent());
+        Files.deleteIfExists(path);
+        return path.toString();
+    }
+}
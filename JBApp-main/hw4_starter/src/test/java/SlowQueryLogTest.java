@@ -0,0 +1,136 @@
+import com.j256.ormlite.stmt.SelectArg;
+import com.j256.ormlite.table.TableUtils;
+import db.Database;
+import db.SlowQueryLog;
+import model.Employer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SlowQueryLogTest {
+
+    // a database of its own under build/, so the tests neither read nor write the committed JBApp.db
+    private final String URI = "jdbc:sqlite:./build/SlowQueryLogTest.db";
+
+    @BeforeEach
+    public void setUpEach() throws SQLException, IOException {
+        try (Database database = Database.open(URI)) {
+            TableUtils.clearTable(database.getConnectionSource(), Employer.class);
+            database.getEmployerDao().create(Fixtures.employer());
+        }
+    }
+
+    // with a 0 ms threshold every DAO statement is logged with its SQL, parameters, rows and plan
+    @Test
+    public void testStatementsAreLoggedWithPlan() throws SQLException, IOException, InterruptedException {
+        SlowQueryLog log = new SlowQueryLog(0, 1.0, 100);
+        try (Database database = Database.open(URI, log)) {
+            long employers = database.getEmployerDao().queryForAll().size();
+            database.getEmployerDao().queryBuilder().where().eq("name", new SelectArg("Sonos")).query();
+            log.awaitQueryPlans();
+
+            List<SlowQueryLog.Entry> recent = log.recent();
+            SlowQueryLog.Entry byName = recent.get(0);
+            assertTrue(byName.getSql().contains("FROM `employers` WHERE `name` = ?"));
+            assertEquals(Collections.singletonList("String"), byName.getParameterTypes());
+            assertTrue(byName.getQueryPlan().get(0).contains("employers"));
+
+            SlowQueryLog.Entry all = recent.get(1);
+            assertEquals(1, employers);
+            assertEquals(employers, all.getRows());
+            assertTrue(all.getQueryPlan().get(0).startsWith("SCAN"));
+        }
+    }
+
+    // calls that do not go through a compiled statement (create, queryForId, countOf) are timed too
+    @Test
+    public void testOneShotStatementsAreLogged() throws SQLException, IOException {
+        SlowQueryLog log = new SlowQueryLog(0, 0.0, 10);
+        try (Database database = Database.open(URI, log)) {
+            Employer employer = new Employer("Sonos", "Tech", "Speakers");
+            database.getEmployerDao().create(employer);
+            database.getEmployerDao().queryForId(employer.getId());
+            database.getEmployerDao().countOf();
+            List<SlowQueryLog.Entry> recent = log.recent();
+            assertTrue(recent.get(0).getSql().startsWith("SELECT COUNT(*)"));
+            assertTrue(recent.get(1).getSql().contains("WHERE `id` = ?"));
+            assertEquals(1, recent.get(1).getRows());
+            assertEquals(Collections.singletonList("Integer"), recent.get(1).getParameterTypes());
+            assertTrue(recent.get(2).getSql().startsWith("INSERT INTO `employers`"));
+            assertEquals(1, recent.get(2).getRows());
+        }
+    }
+
+    // the ring buffer keeps only the newest entries
+    @Test
+    public void testRingBufferKeepsNewest() throws SQLException, IOException {
+        SlowQueryLog log = new SlowQueryLog(0, 1.0, 2);
+        try (Database database = Database.open(URI, log)) {
+            database.getEmployerDao().queryForEq("name", "a");
+            database.getEmployerDao().queryForEq("sector", "b");
+            database.getEmployerDao().queryForEq("summary", "c");
+            List<SlowQueryLog.Entry> recent = log.recent();
+            assertEquals(2, recent.size());
+            assertTrue(recent.get(0).getSql().contains("`summary`"));
+            assertTrue(recent.get(1).getSql().contains("`sector`"));
+        }
+    }
+
+    // plans are taken once per SQL and shared by the entries of that statement
+    @Test
+    public void testPlansCachedBySql() throws SQLException, IOException, InterruptedException {
+        SlowQueryLog log = new SlowQueryLog(0, 1.0, 10);
+        try (Database database = Database.open(URI, log)) {
+            // the plans of the statements run by open() must not crowd these out of the queue
+            log.awaitQueryPlans();
+            database.getEmployerDao().queryBuilder().where().eq("name", new SelectArg("a")).query();
+            database.getEmployerDao().queryBuilder().where().eq("name", new SelectArg("b")).query();
+            log.awaitQueryPlans();
+            List<SlowQueryLog.Entry> recent = log.recent();
+            assertEquals(recent.get(0).getSql(), recent.get(1).getSql());
+            assertFalse(recent.get(0).getQueryPlan().isEmpty());
+            assertSame(recent.get(0).getQueryPlan(), recent.get(1).getQueryPlan());
+        }
+    }
+
+    // sampleRate only decides which slow entries get a plan: the statements are still timed and logged
+    @Test
+    public void testNoPlanSampling() throws SQLException, IOException, InterruptedException {
+        SlowQueryLog log = new SlowQueryLog(0, 0.0, 10);
+        try (Database database = Database.open(URI, log)) {
+            long timed = (Long) log.snapshot().get("timedStatements");
+            database.getEmployerDao().queryForAll();
+            log.awaitQueryPlans();
+            assertEquals(timed + 1, log.snapshot().get("timedStatements"));
+            assertTrue(log.recent().get(0).getSql().startsWith("SELECT * FROM `employers`"));
+            for (SlowQueryLog.Entry entry : log.recent()) {
+                assertTrue(entry.getQueryPlan().isEmpty());
+            }
+        }
+    }
+
+    // with more slow statements than the plan queue holds, the extra plans are dropped and
+    // awaitQueryPlans still returns
+    @Test
+    public void testAwaitQueryPlansWhenQueueFull() throws SQLException, IOException {
+        SlowQueryLog log = new SlowQueryLog(0, 1.0, 1);
+        try (Database database = Database.open(URI, log)) {
+            for (int i = 0; i < 50; i++) {
+                database.getEmployerDao().queryBuilder().where().eq("name", new SelectArg("name" + i)).query();
+                database.getEmployerDao().queryForEq("summary", "summary " + i);
+            }
+            assertTimeoutPreemptively(Duration.ofSeconds(10), log::awaitQueryPlans);
+        }
+    }
+}
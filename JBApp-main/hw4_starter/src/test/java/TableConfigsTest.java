@@ -0,0 +1,56 @@
+import com.j256.ormlite.db.DatabaseType;
+import com.j256.ormlite.field.FieldType;
+import com.j256.ormlite.jdbc.db.SqliteDatabaseType;
+import com.j256.ormlite.table.DatabaseTableConfig;
+import model.Employer;
+import model.Job;
+import model.JobAlert;
+import model.SavedSearch;
+import model.TableConfigs;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// The hand-written table configs must describe exactly the same tables as the ORMLite
+// annotations on the model classes, otherwise the server and the tests would disagree on the schema
+public class TableConfigsTest {
+
+    private static final DatabaseType DATABASE_TYPE = new SqliteDatabaseType();
+
+    @Test
+    public void testEmployerConfigMatchesAnnotations() throws SQLException {
+        assertSameTable(DatabaseTableConfig.fromClass(DATABASE_TYPE, Employer.class), TableConfigs.employers());
+    }
+
+    @Test
+    public void testJobConfigMatchesAnnotations() throws SQLException {
+        assertSameTable(DatabaseTableConfig.fromClass(DATABASE_TYPE, Job.class), TableConfigs.jobs());
+    }
+
+    @Test
+    public void testSavedSearchConfigMatchesAnnotations() throws SQLException {
+        assertSameTable(DatabaseTableConfig.fromClass(DATABASE_TYPE, SavedSearch.class), TableConfigs.savedSearches());
+    }
+
+    @Test
+    public void testJobAlertConfigMatchesAnnotations() throws SQLException {
+        assertSameTable(DatabaseTableConfig.fromClass(DATABASE_TYPE, JobAlert.class), TableConfigs.jobAlerts());
+    }
+
+    private static void assertSameTable(DatabaseTableConfig<?> annotated, DatabaseTableConfig<?> prebuilt) throws SQLException {
+        assertEquals(annotated.getTableName(), prebuilt.getTableName());
+        prebuilt.extractFieldTypes(DATABASE_TYPE);
+        FieldType[] expected = annotated.getFieldTypes(DATABASE_TYPE);
+        FieldType[] actual = prebuilt.getFieldTypes(DATABASE_TYPE);
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i].getColumnName(), actual[i].getColumnName());
+            assertEquals(expected[i].getDataPersister(), actual[i].getDataPersister());
+            assertEquals(expected[i].isGeneratedId(), actual[i].isGeneratedId());
+            assertEquals(expected[i].isCanBeNull(), actual[i].isCanBeNull());
+            assertEquals(expected[i].isUnique(), actual[i].isUnique());
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package bench;
+
+import model.Employer;
+import model.Job;
+import model.SavedSearch;
+import search.AlertMatcher;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+// Matching throughput of AlertMatcher: random saved searches against a stream of random jobs,
+// drawn from 20 domains, 100 locations and 500 requirement keywords.
+//   ./gradlew bench -PmainClass=bench.AlertMatcherBenchmark -PbenchArgs="100000 100000"
+// Arguments: number of saved searches, number of jobs
+public class AlertMatcherBenchmark {
+
+    private static final String[] DOMAINS = words("domain", 20);
+    private static final String[] LOCATIONS = words("city", 100);
+    private static final String[] WORDS = words("skill", 500);
+
+    public static void main(String[] args) {
+        int searchCount = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int jobCount = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+        Random random = new Random(42);
+
+        List<SavedSearch> searches = new ArrayList<>(searchCount);
+        for (int i = 0; i < searchCount; i++) {
+            // most saved searches name a domain and a location; some add keywords, a pay floor
+            // or a full-time preference
+            String keywords = random.nextInt(3) == 0 ? null : random.nextInt(3) == 0
+                    ? WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)]
+                    : WORDS[random.nextInt(WORDS.length)];
+            SavedSearch search = new SavedSearch("user" + i,
+                    random.nextInt(5) == 0 ? null : DOMAINS[random.nextInt(DOMAINS.length)],
+                    random.nextInt(4) == 0 ? null : LOCATIONS[random.nextInt(LOCATIONS.length)],
+                    random.nextInt(2) == 0 ? null : random.nextBoolean(),
+                    random.nextInt(4) == 0 ? 0 : 20000 * random.nextInt(8),
+                    keywords);
+            search.setId(i + 1);
+            searches.add(search);
+        }
+        Employer employer = new Employer("Employer", "Sector", "Summary");
+        employer.setId(1);
+        List<Job> jobs = new ArrayList<>(jobCount);
+        for (int i = 0; i < jobCount; i++) {
+            String requirements = WORDS[random.nextInt(WORDS.length)] + ", " + WORDS[random.nextInt(WORDS.length)]
+                    + " and " + WORDS[random.nextInt(WORDS.length)];
+            jobs.add(new Job("Job " + i, new Date(), new Date(), DOMAINS[random.nextInt(DOMAINS.length)],
+                    LOCATIONS[random.nextInt(LOCATIONS.length)], random.nextBoolean(), true, requirements,
+                    random.nextInt(200000), employer));
+        }
+
+        long start = System.nanoTime();
+        AlertMatcher matcher = AlertMatcher.build(searches);
+        System.out.printf("built index over %d searches in %.1f ms%n", matcher.size(), (System.nanoTime() - start) / 1e6);
+
+        for (int round = 0; round < 5; round++) {
+            long[] matches = new long[1];
+            start = System.nanoTime();
+            matcher.match(jobs, (job, searchId) -> matches[0]++);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("round %d: %d jobs in %.2f s = %.0f jobs/s, %d matches%n",
+                    round, jobs.size(), seconds, jobs.size() / seconds, matches[0]);
+        }
+    }
+
+    private static String[] words(String prefix, int count) {
+        String[] words = new String[count];
+        for (int i = 0; i < count; i++) {
+            words[i] = prefix + i;
+        }
+        return words;
+    }
+}
@@ -0,0 +1,91 @@
+package bench;
+
+import db.Database;
+import db.MemorySnapshots;
+import model.Employer;
+import model.Job;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Random;
+
+// Latency and throughput of the same DAO calls against a file database (db.mode=file) and an
+// in-memory one with background snapshots (db.mode=memory): single-row inserts, each its own
+// transaction as from the HTTP handlers, lookups by id and the full /jobs listing. The snapshot
+// thread runs during the memory round with the server's defaults, so its cost is included.
+//   ./gradlew bench -PmainClass=bench.DatabaseModeBenchmark -PbenchArgs="5000 20000 50"
+// Arguments: inserts, lookups by id, full listings
+public class DatabaseModeBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int inserts = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int lookups = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        int listings = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+        Path dir = Paths.get("build", "bench-mode");
+        Files.createDirectories(dir);
+
+        Path file = dir.resolve("file.db");
+        Files.deleteIfExists(file);
+        try (Database database = Database.open("jdbc:sqlite:" + file)) {
+            run("file", database, inserts, lookups, listings);
+        }
+
+        Path snapshot = dir.resolve("snapshot.db");
+        Files.deleteIfExists(snapshot);
+        MemorySnapshots snapshots = new MemorySnapshots("bench", snapshot);
+        try (Database database = Database.open(snapshots.getUri())) {
+            snapshots.start(10000, 1000);
+            run("memory", database, inserts, lookups, listings);
+            snapshots.close();
+            System.out.printf("%-7s %s%n", "", snapshots.stats());
+        }
+    }
+
+    private static void run(String mode, Database database, int inserts, int lookups, int listings) throws Exception {
+        Employer employer = new Employer("Employer", "Sector", "Summary");
+        database.getEmployerDao().create(employer);
+        Random random = new Random(42);
+
+        long[] insertNanos = new long[inserts];
+        long start = System.nanoTime();
+        for (int i = 0; i < inserts; i++) {
+            Job job = new Job("Job " + i, new Date(), new Date(), "domain" + random.nextInt(20),
+                    "city" + random.nextInt(100), random.nextBoolean(), true, "Java and SQL",
+                    random.nextInt(200000), employer);
+            long t = System.nanoTime();
+            database.getJobDao().create(job);
+            insertNanos[i] = System.nanoTime() - t;
+        }
+        double insertSeconds = (System.nanoTime() - start) / 1e9;
+
+        long[] lookupNanos = new long[lookups];
+        start = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            long t = System.nanoTime();
+            database.getJobDao().queryForId(1 + random.nextInt(inserts));
+            lookupNanos[i] = System.nanoTime() - t;
+        }
+        double lookupSeconds = (System.nanoTime() - start) / 1e9;
+
+        start = System.nanoTime();
+        for (int i = 0; i < listings; i++) {
+            database.getJobDao().queryForAll();
+        }
+        double listingMs = (System.nanoTime() - start) / 1e6 / listings;
+
+        System.out.printf("%-7s insert %7.0f/s p50 %7.3f ms p99 %7.3f ms | by id %7.0f/s p50 %6.3f ms p99 %6.3f ms"
+                        + " | listing %d jobs %6.1f ms%n",
+                mode, inserts / insertSeconds, percentile(insertNanos, 50), percentile(insertNanos, 99),
+                lookups / lookupSeconds, percentile(lookupNanos, 50), percentile(lookupNanos, 99),
+                inserts, listingMs);
+    }
+
+    private static double percentile(long[] nanos, int percentile) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return sorted[Math.min(sorted.length - 1, sorted.length * percentile / 100)] / 1e6;
+    }
+}
@@ -0,0 +1,78 @@
+package bench;
+
+import com.sun.management.ThreadMXBean;
+import model.Employer;
+import model.Job;
+import model.JobRow;
+import model.StringDictionary;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+// Compares the retained size per row of a List<Job> (as ORMLite returns it) with the same rows as
+// List<JobRow>, and the bytes allocated by hashCode() over all rows. Every row has its own
+// requirements text and keeps its Employer, so Job.hashCode also hashes the employer.
+//   ./gradlew bench -PmainClass=bench.JobMemoryBenchmark -PbenchArgs=100000
+public class JobMemoryBenchmark {
+
+    private static final String[] DOMAINS = {"tech", "finance", "health", "retail", "energy", "food", "education", "transportation"};
+    private static final String[] LOCATIONS = {"NYC", "Chicago", "LA", "SF", "Seattle", "Boston", "Austin", "Denver", "Baltimore", "Remote"};
+    private static final String[] SKILLS = {"Java", "SQL", "Python", "Kubernetes", "React", "Go", "Spark", "AWS",
+            "customer service", "food safety", "Excel", "accounting", "forklift operation", "nursing", "CAD"};
+
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        Employer employer = new Employer("Salesforce", "Tech", "An American cloud-based software company!");
+        employer.setId(1);
+
+        List<Job> jobs = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            // new String(...) so that every row owns its copies, like rows read through JDBC do
+            Job job = new Job("Job " + i, new Date(1633046400000L + i), new Date(1640995200000L + i),
+                    new String(DOMAINS[i % DOMAINS.length]), new String(LOCATIONS[i % LOCATIONS.length]),
+                    i % 2 == 0, i % 3 == 0, requirements(i), 50000 + i, employer);
+            job.setId(i + 1);
+            jobs.add(job);
+        }
+        StringDictionary dictionary = new StringDictionary(1000);
+        List<JobRow> jobRows = new ArrayList<>(rows);
+        for (Job job : jobs) {
+            jobRows.add(JobRow.from(job, dictionary));
+        }
+
+        long jobBytes = GraphLayout.parseInstance(jobs).totalSize();
+        long rowBytes = GraphLayout.parseInstance(jobRows, dictionary).totalSize();
+        System.out.printf("rows: %d%n", rows);
+        System.out.printf("Job:    %,d bytes total, %d bytes/row%n", jobBytes, jobBytes / rows);
+        System.out.printf("JobRow: %,d bytes total, %d bytes/row (including dictionary of %d strings)%n",
+                rowBytes, rowBytes / rows, dictionary.size());
+
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        int sink = 0;
+        for (int round = 0; round < 5; round++) {
+            long before = threads.getThreadAllocatedBytes(threadId);
+            for (Job job : jobs) {
+                sink += job.hashCode();
+            }
+            long jobAlloc = threads.getThreadAllocatedBytes(threadId) - before;
+            before = threads.getThreadAllocatedBytes(threadId);
+            for (JobRow row : jobRows) {
+                sink += row.hashCode();
+            }
+            long rowAlloc = threads.getThreadAllocatedBytes(threadId) - before;
+            System.out.printf("hashCode round %d: Job allocated %,d bytes, JobRow allocated %,d bytes%n", round, jobAlloc, rowAlloc);
+        }
+        System.out.println("(ignore) " + sink);
+    }
+
+    // free text that differs from row to row, as job postings do
+    private static String requirements(int i) {
+        return "Must be familiar with " + SKILLS[i % SKILLS.length] + " and " + SKILLS[(i / SKILLS.length) % SKILLS.length]
+                + ", with " + (1 + i % 9) + "+ years of experience. Posting #" + i
+                + " - apply before the deadline and mention this reference.";
+    }
+}
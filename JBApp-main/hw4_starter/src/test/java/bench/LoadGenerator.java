@@ -0,0 +1,101 @@
+package bench;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Closed-loop load generator for a running server: N threads send GET requests back to back for
+// a fixed time and report throughput and latency percentiles. Run it once per server setting
+// (restart the server with different -Dserver.* values) and compare.
+//   ./gradlew bench -PmainClass=bench.LoadGenerator -PbenchArgs="http://localhost:7000/jobs 16 30 h1 keepalive"
+// Arguments: url, threads, seconds, protocol (h1 | h2c), connections (keepalive | close)
+public class LoadGenerator {
+
+    public static void main(String[] args) throws Exception {
+        String url = args.length > 0 ? args[0] : "http://localhost:7000/jobs";
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        boolean h2c = args.length > 3 && "h2c".equals(args[3]);
+        boolean keepAlive = args.length <= 4 || !"close".equals(args[4]);
+
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(threads);
+        dispatcher.setMaxRequestsPerHost(threads);
+        OkHttpClient client = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(keepAlive ? threads : 0, 5, TimeUnit.MINUTES))
+                .protocols(h2c ? Collections.singletonList(Protocol.H2_PRIOR_KNOWLEDGE) : Collections.singletonList(Protocol.HTTP_1_1))
+                .build();
+        Request request = keepAlive
+                ? new Request.Builder().url(url).build()
+                : new Request.Builder().url(url).header("Connection", "close").build();
+
+        // warm up the server and the client before measuring
+        long warmupEnd = System.nanoTime() + TimeUnit.SECONDS.toNanos(Math.min(5, seconds));
+        run(client, request, threads, warmupEnd, new ArrayList<>(), new AtomicLong());
+
+        List<long[]> latencies = Collections.synchronizedList(new ArrayList<>());
+        AtomicLong errors = new AtomicLong();
+        long start = System.nanoTime();
+        run(client, request, threads, start + TimeUnit.SECONDS.toNanos(seconds), latencies, errors);
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("%s %s %s threads=%d%n", url, h2c ? "h2c" : "http/1.1", keepAlive ? "keep-alive" : "close", threads);
+        System.out.printf("requests: %d, errors: %d, throughput: %.1f req/s%n", all.length, errors.get(), all.length / elapsed);
+        if (all.length > 0) {
+            System.out.printf("latency ms: p50=%.2f p90=%.2f p99=%.2f max=%.2f%n",
+                    percentile(all, 0.50), percentile(all, 0.90), percentile(all, 0.99), all[all.length - 1] / 1e6);
+        }
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+    }
+
+    private static void run(OkHttpClient client, Request request, int threads, long endNanos,
+                            List<long[]> latencies, AtomicLong errors) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            pool.execute(() -> {
+                long[] samples = new long[1024];
+                int n = 0;
+                while (System.nanoTime() < endNanos) {
+                    long begin = System.nanoTime();
+                    try (Response response = client.newCall(request).execute()) {
+                        response.body().bytes();
+                        if (!response.isSuccessful()) {
+                            errors.incrementAndGet();
+                            continue;
+                        }
+                    } catch (IOException e) {
+                        errors.incrementAndGet();
+                        continue;
+                    }
+                    if (n == samples.length) {
+                        samples = Arrays.copyOf(samples, n * 2);
+                    }
+                    samples[n++] = System.nanoTime() - begin;
+                }
+                latencies.add(Arrays.copyOf(samples, n));
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.HOURS);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))] / 1e6;
+    }
+}
@@ -0,0 +1,125 @@
+package bench;
+
+import com.google.gson.Gson;
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.ThreadMXBean;
+import model.Employer;
+import model.Job;
+import server.OffHeapResponseCache;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import java.io.FileOutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Heap allocation and GC pauses of serving the same /jobs listing with Gson.toJson on every
+// request (the uncached path) and from OffHeapResponseCache. Both write the body to /dev/null
+// through a FileChannel, as Jetty writes to a SocketChannel: the String path has to encode a
+// byte[] and the channel copies it into a temporary direct buffer, the cached path writes its
+// direct buffer as it is.
+//   ./gradlew bench -PmainClass=bench.ResponseCacheBenchmark -PbenchArgs="2000 10"
+// Arguments: jobs in the listing, seconds per mode
+public class ResponseCacheBenchmark {
+
+    private static final AtomicLong GC_PAUSES = new AtomicLong();
+    private static final AtomicLong GC_PAUSE_MS = new AtomicLong();
+    private static final AtomicLong MAX_GC_PAUSE_MS = new AtomicLong();
+
+    public static void main(String[] args) throws Exception {
+        int jobCount = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        listenForGcPauses();
+
+        Employer employer = new Employer("Employer", "Sector", "Summary");
+        employer.setId(1);
+        Random random = new Random(42);
+        List<Job> jobs = new ArrayList<>(jobCount);
+        for (int i = 0; i < jobCount; i++) {
+            Job job = new Job("Job " + i, new Date(), new Date(), "domain" + random.nextInt(20),
+                    "city" + random.nextInt(100), random.nextBoolean(), true,
+                    "Java, SQL and some other requirements", random.nextInt(200000), employer);
+            job.setId(i + 1);
+            jobs.add(job);
+        }
+        Gson gson = new Gson();
+        OffHeapResponseCache cache = new OffHeapResponseCache(64L * 1024 * 1024);
+        cache.put("jobs", 1, gson.toJson(jobs).getBytes(StandardCharsets.UTF_8));
+
+        try (FileChannel sink = new FileOutputStream("/dev/null").getChannel()) {
+            for (int round = 0; round < 2; round++) {
+                // the first round warms up the JIT
+                run(round == 0 ? "warm-up gson" : "gson.toJson", seconds, () -> {
+                    sink.write(ByteBuffer.wrap(gson.toJson(jobs).getBytes(StandardCharsets.UTF_8)));
+                });
+                run(round == 0 ? "warm-up off-heap" : "off-heap", seconds, () -> {
+                    ByteBuffer body = cache.get("jobs", 1);
+                    while (body.hasRemaining()) {
+                        sink.write(body);
+                    }
+                });
+            }
+        }
+    }
+
+    private interface Request {
+        void serve() throws Exception;
+    }
+
+    private static void run(String name, int seconds, Request request) throws Exception {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        System.gc();
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long collectionsBefore = collections();
+        GC_PAUSES.set(0);
+        GC_PAUSE_MS.set(0);
+        MAX_GC_PAUSE_MS.set(0);
+        long maxHeapUsed = 0;
+        long requests = 0;
+        long start = System.nanoTime();
+        long end = start + seconds * 1_000_000_000L;
+        while (System.nanoTime() < end) {
+            request.serve();
+            if (++requests % 64 == 0) {
+                maxHeapUsed = Math.max(maxHeapUsed, ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+            }
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        System.out.printf("%-16s %8.0f req/s  %10.1f KB allocated/req  max heap used %5d MB  "
+                        + "%4d GCs, %5d ms paused (max %d ms)%n",
+                name, requests / elapsed, allocated / 1024.0 / requests, maxHeapUsed >> 20,
+                collections() - collectionsBefore, GC_PAUSE_MS.get(), MAX_GC_PAUSE_MS.get());
+    }
+
+    private static long collections() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += gc.getCollectionCount();
+        }
+        return count;
+    }
+
+    private static void listenForGcPauses() {
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            ((NotificationEmitter) gc).addNotificationListener((notification, handback) -> {
+                if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                    GarbageCollectionNotificationInfo info =
+                            GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                    long ms = info.getGcInfo().getDuration();
+                    GC_PAUSES.incrementAndGet();
+                    GC_PAUSE_MS.addAndGet(ms);
+                    MAX_GC_PAUSE_MS.accumulateAndGet(ms, Math::max);
+                }
+            }, null, null);
+        }
+    }
+}
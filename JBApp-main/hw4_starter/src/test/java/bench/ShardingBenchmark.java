@@ -0,0 +1,83 @@
+package bench;
+
+import model.Employer;
+import model.Job;
+import model.JobRow;
+import search.JobFilter;
+import shard.ShardedDatabase;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+// Ingest and listing throughput of ShardedDatabase for increasing shard counts. Each round writes
+// the jobs of batchEmployers employers in one createJobs call, which fans out to their shards in
+// parallel, then pages through the whole /jobs listing 100 rows at a time. Files go to
+// build/bench-shards/ and are recreated for every shard count.
+//   ./gradlew bench -PmainClass=bench.ShardingBenchmark -PbenchArgs="1,2,4,8 2000 20 64"
+// Arguments: shard counts, employers, jobs per employer, employers per createJobs batch
+public class ShardingBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        String[] shardCounts = (args.length > 0 ? args[0] : "1,2,4,8").split(",");
+        int employerCount = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        int jobsPerEmployer = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        int batchEmployers = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+        System.out.printf("%d employers x %d jobs, %d employers per batch, %d cores%n",
+                employerCount, jobsPerEmployer, batchEmployers, Runtime.getRuntime().availableProcessors());
+
+        for (String count : shardCounts) {
+            int shardCount = Integer.parseInt(count.trim());
+            Path dir = Paths.get("build", "bench-shards", String.valueOf(shardCount));
+            Files.createDirectories(dir);
+            List<String> uris = new ArrayList<>();
+            for (int i = 0; i < shardCount; i++) {
+                Files.deleteIfExists(dir.resolve("shard" + i + ".db"));
+                uris.add("jdbc:sqlite:" + dir.resolve("shard" + i + ".db"));
+            }
+            Files.deleteIfExists(dir.resolve("catalog.db"));
+            try (ShardedDatabase database = ShardedDatabase.open(uris, "jdbc:sqlite:" + dir.resolve("catalog.db"), null)) {
+                Random random = new Random(42);
+                List<Employer> employers = new ArrayList<>(employerCount);
+                for (int e = 0; e < employerCount; e++) {
+                    employers.add(new Employer("Employer " + e, "Sector", "Summary"));
+                }
+                database.createEmployers(employers);
+
+                long start = System.nanoTime();
+                int jobsWritten = 0;
+                for (int from = 0; from < employerCount; from += batchEmployers) {
+                    List<Job> batch = new ArrayList<>();
+                    for (Employer employer : employers.subList(from, Math.min(from + batchEmployers, employerCount))) {
+                        for (int j = 0; j < jobsPerEmployer; j++) {
+                            batch.add(new Job("Job " + employer.getId() + "-" + j, new Date(), new Date(),
+                                    "domain" + random.nextInt(20), "city" + random.nextInt(100), random.nextBoolean(),
+                                    true, "Requirements", random.nextInt(200000), employer));
+                        }
+                    }
+                    database.createJobs(batch);
+                    jobsWritten += batch.size();
+                }
+                double ingestSeconds = (System.nanoTime() - start) / 1e9;
+
+                JobFilter all = new JobFilter(Collections.emptyMap());
+                start = System.nanoTime();
+                int pages = 0;
+                long afterId = 0;
+                List<JobRow> page;
+                while (!(page = database.listJobs(all, afterId, 100)).isEmpty()) {
+                    afterId = page.get(page.size() - 1).getId();
+                    pages++;
+                }
+                double pageMs = (System.nanoTime() - start) / 1e6 / pages;
+                System.out.printf("%2d shards: ingest %8.0f jobs/s, listing %.2f ms per 100-job page%n",
+                        shardCount, jobsWritten / ingestSeconds, pageMs);
+            }
+        }
+    }
+}